@@ -0,0 +1,63 @@
+package com.example.demo;
+
+import com.example.demo.security.jwt.AuthorityRegistry;
+import com.example.demo.security.jwt.JwtUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares building the principal of a token from scratch with the shared authorities of the
+ * {@link AuthorityRegistry}, compare the bytes allocated per operation ({@code gc.alloc.rate.norm}) reported by
+ * the gc profiler of the jmh profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorityRegistryBenchmark {
+
+    // the number of roles carried by the token
+    @Param({"1", "5"})
+    private int roleCount;
+
+    private AuthorityRegistry registry;
+
+    private String roles;
+
+    @Setup
+    public void setup() {
+        this.registry = new AuthorityRegistry();
+        this.roles = IntStream.range(0, this.roleCount)
+                .mapToObj(i -> "ROLE_" + i)
+                .collect(Collectors.joining(","));
+    }
+
+    @Benchmark
+    public UserDetails parsedAuthorities() {
+        return new User("user", "", AuthorityUtils.commaSeparatedStringToAuthorityList(this.roles));
+    }
+
+    @Benchmark
+    public UserDetails registeredAuthorities() {
+        return new JwtUser("user", this.registry.authoritiesOf(this.roles));
+    }
+
+}
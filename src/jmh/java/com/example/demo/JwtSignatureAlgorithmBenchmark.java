@@ -0,0 +1,64 @@
+package com.example.demo;
+
+import com.example.demo.security.jwt.JwtProperties;
+import com.example.demo.security.jwt.JwtTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost to sign and verify a token per {@link JwtProperties.Algorithm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSignatureAlgorithmBenchmark {
+
+    @Param({"HS256", "ES256", "EdDSA"})
+    private JwtProperties.Algorithm algorithm;
+
+    private JwtTokenProvider tokenProvider;
+
+    private Authentication authentication;
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        var properties = new JwtProperties();
+        properties.setAlgorithm(this.algorithm);
+        this.tokenProvider = new JwtTokenProvider(properties);
+        this.tokenProvider.init();
+
+        this.authentication = new UsernamePasswordAuthenticationToken("user", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"));
+        this.token = this.tokenProvider.createToken(this.authentication);
+    }
+
+    @Benchmark
+    public String sign() {
+        return this.tokenProvider.createToken(this.authentication);
+    }
+
+    @Benchmark
+    public Object verify() {
+        return this.tokenProvider.verify(this.token);
+    }
+
+}
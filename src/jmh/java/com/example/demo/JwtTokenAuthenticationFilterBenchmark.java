@@ -0,0 +1,109 @@
+package com.example.demo;
+
+import com.example.demo.repository.RevokedTokenRepository;
+import com.example.demo.security.jwt.JwtProperties;
+import com.example.demo.security.jwt.JwtTokenAuthenticationFilter;
+import com.example.demo.security.jwt.JwtTokenProvider;
+import com.example.demo.security.jwt.TokenRevocationService;
+import com.example.demo.security.jwt.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the whole {@link JwtTokenAuthenticationFilter} against a stub {@link WebFilterChain} which only
+ * reads the security context, so the numbers include resolving the token from the header. The
+ * {@code permitAll} variant never reads the context, as on a route which does not need the authentication.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenAuthenticationFilterBenchmark {
+
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    private JwtTokenAuthenticationFilter filter;
+
+    private ServerWebExchange authenticatedExchange;
+
+    private ServerWebExchange anonymousExchange;
+
+    private final WebFilterChain chain = exchange -> ReactiveSecurityContextHolder.getContext().then();
+
+    private final WebFilterChain permitAllChain = exchange -> Mono.empty();
+
+    @Setup
+    public void setup() {
+        var properties = new JwtProperties();
+        properties.getCache().setEnabled(this.cacheEnabled);
+
+        var tokenProvider = new JwtTokenProvider(properties);
+        tokenProvider.init();
+        var meterRegistry = new SimpleMeterRegistry();
+        var tokenCache = new VerifiedTokenCache(properties, meterRegistry);
+        var revocations = new TokenRevocationService(tokenProvider, emptyRevokedTokens(), properties, meterRegistry);
+        // builds an empty bloom filter, so every check is answered in memory.
+        revocations.rebuild();
+        this.filter = new JwtTokenAuthenticationFilter(tokenProvider, tokenCache, revocations);
+
+        var token = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("user", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN")));
+        this.authenticatedExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/posts")
+                .header(HttpHeaders.AUTHORIZATION, JwtTokenAuthenticationFilter.HEADER_PREFIX + token));
+        this.anonymousExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/posts"));
+    }
+
+    private static RevokedTokenRepository emptyRevokedTokens() {
+        return (RevokedTokenRepository) Proxy.newProxyInstance(
+                RevokedTokenRepository.class.getClassLoader(),
+                new Class<?>[]{RevokedTokenRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("findBy")) {
+                        return Flux.empty();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Benchmark
+    public Void filterWithToken() {
+        return this.filter.filter(this.authenticatedExchange, this.chain).block();
+    }
+
+    @Benchmark
+    public Void filterWithTokenOnPermitAllRoute() {
+        return this.filter.filter(this.authenticatedExchange, this.permitAllChain).block();
+    }
+
+    @Benchmark
+    public Void filterWithoutToken() {
+        return this.filter.filter(this.anonymousExchange, this.chain).block();
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.example.demo;
+
+import com.example.demo.security.jwt.JwtProperties;
+import com.example.demo.security.jwt.JwtTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    // the number of roles carried by the token
+    @Param({"1", "5", "20"})
+    private int roleCount;
+
+    // the length of every role name, together with roleCount it drives the token size
+    @Param({"10", "64"})
+    private int roleNameLength;
+
+    private JwtTokenProvider tokenProvider;
+
+    private Authentication authentication;
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        this.tokenProvider = new JwtTokenProvider(new JwtProperties());
+        this.tokenProvider.init();
+
+        String[] roles = IntStream.range(0, this.roleCount)
+                .mapToObj(this::roleName)
+                .toArray(String[]::new);
+        this.authentication = new UsernamePasswordAuthenticationToken("user", null,
+                AuthorityUtils.createAuthorityList(roles));
+        this.token = this.tokenProvider.createToken(this.authentication);
+    }
+
+    private String roleName(int index) {
+        var name = new StringBuilder("ROLE_").append(index).append('_');
+        while (name.length() < this.roleNameLength) {
+            name.append('X');
+        }
+        return name.toString();
+    }
+
+    @Benchmark
+    public String createToken() {
+        return this.tokenProvider.createToken(this.authentication);
+    }
+
+    @Benchmark
+    public Object verify() {
+        return this.tokenProvider.verify(this.token);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication() {
+        return this.tokenProvider.getAuthentication(this.token);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return this.tokenProvider.validateToken(this.token);
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.example.demo;
+
+import com.example.demo.domain.Comment;
+import com.example.demo.domain.Post;
+import com.example.demo.domain.RefreshToken;
+import com.example.demo.domain.RevokedToken;
+import com.example.demo.domain.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared by the {@code @Indexed} family of annotations on the documents, the
+ * automatic index creation of Spring Data MongoDB is disabled by default.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IndexInitializer {
+
+    static final List<Class<?>> INDEXED_DOCUMENTS = List.of(
+            User.class, Post.class, Comment.class, RevokedToken.class, RefreshToken.class
+    );
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @EventListener(value = ApplicationReadyEvent.class)
+    public void init() {
+        log.info("start index initialization...");
+
+        ensureIndexes()
+                .subscribe(
+                        index -> log.info("index:" + index), err -> log.error("error:" + err),
+                        () -> log.info("done index initialization...")
+                );
+    }
+
+    public Flux<String> ensureIndexes() {
+        var resolver = new MongoPersistentEntityIndexResolver(this.mongoTemplate.getConverter().getMappingContext());
+        return Flux.fromIterable(INDEXED_DOCUMENTS)
+                .concatMap(type -> Flux.fromIterable(resolver.resolveIndexFor(type))
+                        .concatMap(index -> this.mongoTemplate.indexOps(type).ensureIndex(index)));
+    }
+
+}
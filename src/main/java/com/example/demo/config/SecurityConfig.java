@@ -1,11 +1,22 @@
 package com.example.demo.config;
 
-import com.example.demo.repository.UserRepository;
+import com.example.demo.repository.UserCache;
+import com.example.demo.security.LoginRateLimitFilter;
+import com.example.demo.security.LoginRateLimiter;
+import com.example.demo.security.PasswordHashingProperties;
+import com.example.demo.security.ServiceOverloadedException;
+import com.example.demo.security.TimedPasswordEncoder;
 import com.example.demo.security.jwt.JwtTokenAuthenticationFilter;
 import com.example.demo.security.jwt.JwtTokenProvider;
+import com.example.demo.security.jwt.TokenRevocationService;
+import com.example.demo.security.jwt.VerifiedTokenCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.authorization.AuthorizationDecision;
@@ -19,6 +30,14 @@ import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.security.web.server.authorization.AuthorizationContext;
 import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class SecurityConfig {
@@ -26,6 +45,10 @@ public class SecurityConfig {
     @Bean
     SecurityWebFilterChain springWebFilterChain(ServerHttpSecurity http,
                                                 JwtTokenProvider tokenProvider,
+                                                VerifiedTokenCache tokenCache,
+                                                TokenRevocationService revocations,
+                                                LoginRateLimiter loginRateLimiter,
+                                                ObjectMapper objectMapper,
                                                 ReactiveAuthenticationManager reactiveAuthenticationManager) {
         final String PATH_POSTS = "/posts/**";
 
@@ -34,14 +57,18 @@ public class SecurityConfig {
                 .authenticationManager(reactiveAuthenticationManager)
                 .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
                 .authorizeExchange(it -> it
+                        .pathMatchers(HttpMethod.GET, "/posts/export").hasRole("ADMIN")
                         .pathMatchers(HttpMethod.GET, PATH_POSTS).permitAll()
                         .pathMatchers(HttpMethod.DELETE, PATH_POSTS).hasRole("ADMIN")
+                        .pathMatchers(HttpMethod.POST, "/posts:bulk").hasRole("ADMIN")
                         .pathMatchers(PATH_POSTS).authenticated()
                         .pathMatchers("/me").authenticated()
                         .pathMatchers("/users/{user}/**").access(this::currentUserMatchesPath)
+                        .pathMatchers("/actuator/metrics/**").hasRole("ADMIN")
                         .anyExchange().permitAll()
                 )
-                .addFilterAt(new JwtTokenAuthenticationFilter(tokenProvider), SecurityWebFiltersOrder.HTTP_BASIC)
+                .addFilterBefore(new LoginRateLimitFilter(loginRateLimiter, objectMapper), SecurityWebFiltersOrder.HTTP_BASIC)
+                .addFilterAt(new JwtTokenAuthenticationFilter(tokenProvider, tokenCache, revocations), SecurityWebFiltersOrder.HTTP_BASIC)
                 .build();
 
 
@@ -57,7 +84,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public ReactiveUserDetailsService userDetailsService(UserRepository users) {
+    public ReactiveUserDetailsService userDetailsService(UserCache users) {
 
         return username -> users.findByUsername(username)
                 .map(u -> User
@@ -73,10 +100,31 @@ public class SecurityConfig {
 
     @Bean
     public ReactiveAuthenticationManager reactiveAuthenticationManager(ReactiveUserDetailsService userDetailsService,
-                                                                       PasswordEncoder passwordEncoder) {
+                                                                       PasswordEncoder passwordEncoder,
+                                                                       Scheduler passwordHashingScheduler,
+                                                                       PasswordHashingProperties passwordHashingProperties,
+                                                                       MeterRegistry meterRegistry) {
         var authenticationManager = new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService);
-        authenticationManager.setPasswordEncoder(passwordEncoder);
-        return authenticationManager;
+        authenticationManager.setPasswordEncoder(new TimedPasswordEncoder(passwordEncoder, meterRegistry));
+        authenticationManager.setScheduler(passwordHashingScheduler);
+
+        var retryAfter = Duration.ofMillis(passwordHashingProperties.getRetryAfterInMs());
+        return authentication -> authenticationManager.authenticate(authentication)
+                .onErrorMap(RejectedExecutionException.class,
+                        e -> new ServiceOverloadedException("Too many concurrent logins.", retryAfter, e));
+    }
+
+    // a dedicated and bounded pool, so a burst of logins can not starve the other requests of CPU.
+    @Bean(destroyMethod = "dispose")
+    public Scheduler passwordHashingScheduler(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        var threadFactory = new CustomizableThreadFactory("password-hashing-");
+        threadFactory.setDaemon(true);
+        var executor = new ThreadPoolExecutor(properties.getMaxConcurrency(), properties.getMaxConcurrency(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        // records the queue wait as executor.idle and the queue depth as executor.queued
+        var timedExecutor = ExecutorServiceMetrics.monitor(meterRegistry, executor, "password.hashing");
+        return Schedulers.fromExecutorService(timedExecutor, "password-hashing");
     }
 
 }
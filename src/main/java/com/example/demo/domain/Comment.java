@@ -9,6 +9,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.io.Serializable;
@@ -28,6 +29,8 @@ public class Comment implements PersistentEntity, Serializable {
     @NotBlank
     private String content;
 
+    // findByPost matches the embedded document as a whole, so the index is on it rather than on post._id
+    @Indexed
     private PostId post;
 
     @CreatedDate
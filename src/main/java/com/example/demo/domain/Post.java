@@ -1,5 +1,6 @@
 package com.example.demo.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,13 +10,23 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import jakarta.validation.constraints.NotBlank;
 
-@Document
+// the language of the text index, the stemming and the stop words of the indexed words
+@Document(language = "english")
+@CompoundIndex(name = "createdDate_id", def = "{'createdDate': -1, '_id': -1}")
+// the fields left out by a projection are null, they are left out of the response too
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
 @Builder
 @NoArgsConstructor
@@ -26,12 +37,15 @@ public class Post implements PersistentEntity, Serializable {
     private String id;
 
     @NotBlank
+    @TextIndexed(weight = 2)
     private String title;
 
     @NotBlank
+    @TextIndexed
     private String content;
 
     @Builder.Default
+    @Indexed
     private Status status = Status.DRAFT;
 
     @CreatedDate
@@ -46,6 +60,18 @@ public class Post implements PersistentEntity, Serializable {
     @LastModifiedBy
     private Username lastModifiedBy;
 
+    // bumped by every update, an update expecting another version is not applied
+    @Version
+    private Long version;
+
+    // the relevance of the post, only set by a text search
+    @TextScore
+    private Float score;
+
+    // the head of the content, only set by a projection including it, never stored
+    @ReadOnlyProperty
+    private String excerpt;
+
     public enum Status {
 
         DRAFT, PUBLISHED
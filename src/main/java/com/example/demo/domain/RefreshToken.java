@@ -0,0 +1,39 @@
+package com.example.demo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * An issued refresh token, removed when it is used or by the TTL index once it expires.
+ */
+@Document
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+
+    // the hex encoded SHA-256 digest of the token, the token itself is never stored
+    @Id
+    private String id;
+
+    // a logout without the refresh token removes all the tokens of the user
+    @Indexed
+    private String username;
+
+    // the time of the password login the refresh token chain started with
+    private Instant sessionStartedAt;
+
+    private Instant issuedAt;
+
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+
+}
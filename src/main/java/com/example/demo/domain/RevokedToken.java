@@ -0,0 +1,35 @@
+package com.example.demo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A token revoked before its expiration, removed by the TTL index once the token expires anyway.
+ */
+@Document
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+
+    // the hex encoded SHA-256 digest of the token
+    @Id
+    private String id;
+
+    private String username;
+
+    @Indexed
+    private Instant revokedAt;
+
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+
+}
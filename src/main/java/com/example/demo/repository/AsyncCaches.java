@@ -0,0 +1,26 @@
+package com.example.demo.repository;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Reads through the Caffeine {@link AsyncCache}s with a reactive loader.
+ */
+final class AsyncCaches {
+
+    private AsyncCaches() {
+    }
+
+    /**
+     * Concurrent lookups of the same missing key wait for a single load, and an empty result is not cached.
+     */
+    static <K, V> Mono<V> get(AsyncCache<K, V> cache, K key, Function<K, Mono<V>> loader) {
+        // the future is shared by all the subscribers waiting for it, one of them cancelling must not cancel it
+        return Mono.defer(() -> Mono.fromFuture(
+                cache.get(key, (k, executor) -> loader.apply(k).toFuture()),
+                true));
+    }
+
+}
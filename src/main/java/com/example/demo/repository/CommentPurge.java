@@ -0,0 +1,67 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.PostId;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Removes the comments of the deleted posts, with a single deleteMany on the indexed post of the comments.
+ * <p>
+ * When async, the posts are queued and purged one at a time in the background. The queue is in memory, the
+ * comments of the posts still queued on a shutdown are left over.
+ */
+@Component
+@Slf4j
+public class CommentPurge {
+
+    private final CommentRepository comments;
+
+    private final boolean async;
+
+    private final Sinks.Many<String> queue = Sinks.many().unicast().onBackpressureBuffer();
+
+    private final Disposable worker;
+
+    public CommentPurge(CommentRepository comments, CommentPurgeProperties properties) {
+        this.comments = comments;
+        this.async = properties.isAsync();
+        var retry = Retry.backoff(properties.getMaxRetries(), Duration.ofMillis(properties.getRetryBackoffInMs()));
+        this.worker = !this.async ? null : this.queue.asFlux()
+                .concatMap(postId -> purgeNow(postId)
+                        .doOnNext(count -> log.debug("purged {} comments of the post {}", count, postId))
+                        .retryWhen(retry)
+                        .onErrorResume(err -> {
+                            log.error("error when purging the comments of the post " + postId + ": " + err);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    public Mono<Void> purge(String postId) {
+        if (!this.async) {
+            return purgeNow(postId).then();
+        }
+        return Mono.fromRunnable(() ->
+                // the deleting requests may emit at the same time, the sink takes a single one at once
+                this.queue.emitNext(postId, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1))));
+    }
+
+    private Mono<Long> purgeNow(String postId) {
+        return this.comments.deleteByPost(new PostId(postId));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.worker != null) {
+            this.worker.dispose();
+        }
+    }
+
+}
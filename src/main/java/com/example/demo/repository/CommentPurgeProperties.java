@@ -0,0 +1,18 @@
+package com.example.demo.repository;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "comments.purge")
+@Data
+public class CommentPurgeProperties {
+
+    // purges the comments of a deleted post in the background, the deletion does not wait for them
+    private boolean async = false;
+
+    // the retries of a failed background purge, the comments are left over after the last one
+    private int maxRetries = 3;
+
+    private long retryBackoffInMs = 1000;
+
+}
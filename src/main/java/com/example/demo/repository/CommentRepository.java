@@ -13,4 +13,7 @@ public interface CommentRepository extends ReactiveMongoRepository<Comment, Stri
 
     Mono<Long> countByPost(PostId id);
 
+    // a single deleteMany, returns the number of the deleted comments
+    Mono<Long> deleteByPost(PostId id);
+
 }
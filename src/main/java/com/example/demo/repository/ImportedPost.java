@@ -0,0 +1,16 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+
+import java.util.List;
+
+/**
+ * A post to import, with the contents of its comments.
+ */
+public record ImportedPost(Post post, List<String> comments) {
+
+    public ImportedPost {
+        comments = comments == null ? List.of() : List.copyOf(comments);
+    }
+
+}
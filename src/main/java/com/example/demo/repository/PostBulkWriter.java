@@ -0,0 +1,149 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Comment;
+import com.example.demo.domain.Post;
+import com.example.demo.domain.PostId;
+import com.example.demo.domain.Username;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.ReactiveAuditorAware;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Inserts the imported posts and their comments in unordered bulk writes, a batch per round trip instead of a
+ * save per document.
+ * <p>
+ * The audit fields, the ids and the versions are set here once per batch, the callbacks and the events of the
+ * saves are skipped. The state derived from the posts, the counts and the title index, is refreshed by
+ * {@link #refresh()} at the end of an import.
+ */
+@Component
+public class PostBulkWriter {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final ObjectProvider<ReactiveAuditorAware<Username>> auditorAware;
+
+    private final PostCounts postCounts;
+
+    private final PostTitleIndex postTitleIndex;
+
+    public PostBulkWriter(ReactiveMongoTemplate mongoTemplate,
+                          ObjectProvider<ReactiveAuditorAware<Username>> auditorAware,
+                          PostCounts postCounts,
+                          PostTitleIndex postTitleIndex) {
+        this.mongoTemplate = mongoTemplate;
+        this.auditorAware = auditorAware;
+        this.postCounts = postCounts;
+        this.postTitleIndex = postTitleIndex;
+    }
+
+    /**
+     * Inserts a batch of posts, then the comments of the inserted ones. A post which is not inserted, a duplicated
+     * id for example, does not stop the others. The posts are given their ids.
+     *
+     * @return the errors of the posts which are not inserted, by their index in the batch
+     */
+    public Mono<Map<Integer, String>> insert(List<ImportedPost> batch) {
+        if (batch.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        var auditor = this.auditorAware.getIfAvailable();
+        var modifiedBy = auditor == null ? Mono.<Username>empty() : auditor.getCurrentAuditor();
+        return modifiedBy
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(username -> {
+                    var now = LocalDateTime.now();
+                    var documents = new ArrayList<Document>(batch.size());
+                    for (ImportedPost imported : batch) {
+                        var post = imported.post();
+                        if (post.getId() == null) {
+                            post.setId(new ObjectId().toHexString());
+                        }
+                        post.setCreatedDate(now);
+                        post.setLastModifiedDate(now);
+                        post.setCreatedBy(username.orElse(null));
+                        post.setLastModifiedBy(username.orElse(null));
+                        post.setVersion(0L);
+                        documents.add(toDocument(post));
+                    }
+                    return insertMany(Post.class, documents)
+                            .flatMap(errors -> insertComments(batch, errors, now, username.orElse(null))
+                                    .thenReturn(errors));
+                });
+    }
+
+    private Mono<Void> insertComments(List<ImportedPost> batch,
+                                      Map<Integer, String> failedPosts,
+                                      LocalDateTime now,
+                                      Username username) {
+        var documents = new ArrayList<Document>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (failedPosts.containsKey(i)) {
+                continue;
+            }
+            var postId = new PostId(batch.get(i).post().getId());
+            for (String content : batch.get(i).comments()) {
+                documents.add(toDocument(Comment.builder()
+                        .content(content)
+                        .post(postId)
+                        .createdDate(now)
+                        .lastModifiedDate(now)
+                        .createdBy(username)
+                        .lastModifiedBy(username)
+                        .build()));
+            }
+        }
+        if (documents.isEmpty()) {
+            return Mono.empty();
+        }
+        // the comments are given new ids, a failure is not one of a line but of the database
+        return insertMany(Comment.class, documents)
+                .flatMap(errors -> errors.isEmpty()
+                        ? Mono.<Void>empty()
+                        : Mono.error(new IllegalStateException("comments not inserted: " + errors.values())));
+    }
+
+    private Mono<Map<Integer, String>> insertMany(Class<?> entityClass, List<Document> documents) {
+        return this.mongoTemplate.getCollection(this.mongoTemplate.getCollectionName(entityClass))
+                .flatMap(collection -> Mono.from(
+                        collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, e -> {
+                    if (e.getWriteConcernError() != null) {
+                        return Mono.error(e);
+                    }
+                    var errors = new HashMap<Integer, String>();
+                    e.getWriteErrors().forEach(error -> errors.put(error.getIndex(), error.getMessage()));
+                    return Mono.just(errors);
+                });
+    }
+
+    private Document toDocument(Object entity) {
+        var document = new Document();
+        this.mongoTemplate.getConverter().write(entity, document);
+        return document;
+    }
+
+    /**
+     * Refreshes the state derived from the posts, once the posts of an import are inserted.
+     */
+    public void refresh() {
+        this.postCounts.invalidateAll();
+        this.postTitleIndex.rebuild();
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * A bounded, time limited read-through cache of the whole posts by id, for the reads of single posts.
+ * <p>
+ * Concurrent lookups of the same missing post wait for a single query, and a post which does not exist is not
+ * cached. The entries are invalidated by {@link PostCacheEvictionListener} when a post is saved or deleted through
+ * this instance, and by {@link PostChangeStream} when it is changed through any instance.
+ */
+@Component
+public class PostCache {
+
+    public static final String CACHE_NAME = "posts";
+
+    private final PostRepository posts;
+
+    private final AsyncCache<String, Post> cache;
+
+    private final boolean enabled;
+
+    public PostCache(PostRepository posts, PostCacheProperties properties, MeterRegistry meterRegistry) {
+        this.posts = posts;
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(properties.getTimeToLiveInMs()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, CACHE_NAME);
+        Gauge.builder("posts.cache.hit.ratio", this.cache, it -> it.synchronous().stats().hitRate())
+                .description("The ratio of the reads of single posts served from memory")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public Mono<Post> findById(String id) {
+        if (!this.enabled) {
+            return this.posts.findById(id);
+        }
+        return AsyncCaches.get(this.cache, id, this.posts::findById);
+    }
+
+    public void invalidate(String id) {
+        this.cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        this.cache.synchronous().invalidateAll();
+    }
+
+}
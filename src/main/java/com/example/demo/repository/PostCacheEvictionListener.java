@@ -0,0 +1,32 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalidates the {@link PostCache} as soon as a post is saved or deleted through this instance, without waiting
+ * for the change stream.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostCacheEvictionListener extends PostEventListener {
+
+    private final PostCache postCache;
+
+    @Override
+    protected void saved(Post post) {
+        this.postCache.invalidate(post.getId());
+    }
+
+    @Override
+    protected void deleted(String id) {
+        this.postCache.invalidate(id);
+    }
+
+    @Override
+    protected void deletedMany() {
+        this.postCache.invalidateAll();
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.example.demo.repository;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "posts.cache")
+@Data
+public class PostCacheProperties {
+
+    private boolean enabled = true;
+
+    // the max number of posts kept in memory
+    private long maximumSize = 10000;
+
+    // bounds how long a change stays invisible when the change stream is down
+    private long timeToLiveInMs = 600000; // 10m
+
+    private ChangeStream changeStream = new ChangeStream();
+
+    @Data
+    public static class ChangeStream {
+
+        // needs a replica set or a mongos, it is turned off at startup on a standalone server
+        private boolean enabled = true;
+
+        // the delay before watching again after a failure, doubled up to the max on every failure in a row
+        private long minBackoffInMs = 1000;
+
+        private long maxBackoffInMs = 60000;
+
+    }
+
+}
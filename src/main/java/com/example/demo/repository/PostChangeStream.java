@@ -0,0 +1,135 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Watches the changes of the posts made through any instance, and drops what this instance keeps of them: the
+ * cached post and the cached counts.
+ * <p>
+ * The changes made while the stream is down are unknown, the whole {@link PostCache} is invalidated every time
+ * the stream is opened again.
+ * <p>
+ * A standalone server has no change streams: it is detected once at startup, and the cached posts then only
+ * expire after their time to live.
+ */
+@Component
+@Slf4j
+public class PostChangeStream {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final PostCache postCache;
+
+    private final PostCounts postCounts;
+
+    private final PostCacheProperties.ChangeStream properties;
+
+    private final Timer lag;
+
+    private volatile Disposable subscription;
+
+    public PostChangeStream(ReactiveMongoTemplate mongoTemplate,
+                            PostCache postCache,
+                            PostCounts postCounts,
+                            PostCacheProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.postCache = postCache;
+        this.postCounts = postCounts;
+        this.properties = properties.getChangeStream();
+        this.lag = Timer.builder("posts.cache.invalidation.lag")
+                .description("The time from a change of a post in the database to its invalidation here")
+                .register(meterRegistry);
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class)
+    public void start() {
+        if (!this.properties.isEnabled() || !this.postCache.isEnabled()) {
+            return;
+        }
+        var collectionName = this.mongoTemplate.getCollectionName(Post.class);
+        var minBackoff = Duration.ofMillis(this.properties.getMinBackoffInMs());
+        this.subscription = this.mongoTemplate.executeCommand(new Document("hello", 1))
+                .retryWhen(backoff("error when asking the server for change streams, asking again: "))
+                .filter(PostChangeStream::supportsChangeStreams)
+                .switchIfEmpty(Mono.fromRunnable(() -> log.info("the server is not a replica set, the posts are not "
+                        + "watched, the cached posts only expire after their time to live")))
+                .flatMapMany(hello -> Flux
+                        .defer(() -> this.mongoTemplate.changeStream(collectionName, ChangeStreamOptions.empty(),
+                                Document.class))
+                        .doOnSubscribe(s -> this.postCache.invalidateAll())
+                        // an invalidate event, on a drop or a rename of the collection, closes the stream
+                        .repeatWhen(completed -> completed.delayElements(minBackoff))
+                        .retryWhen(backoff("error when watching the posts, watching again: "))
+                )
+                .subscribe(
+                        this::apply,
+                        err -> log.error("stopped watching the posts: " + err)
+                );
+    }
+
+    @PreDestroy
+    public void stop() {
+        var current = this.subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    // public for the tests only, the events come from the stream opened by start()
+    public void apply(ChangeStreamEvent<Document> event) {
+        var raw = event.getRaw();
+        var key = raw != null ? raw.getDocumentKey() : null;
+        if (key != null && key.containsKey("_id")) {
+            this.postCache.invalidate(idOf(key.get("_id")));
+        } else {
+            // a drop or a rename of the collection
+            this.postCache.invalidateAll();
+        }
+        this.postCounts.invalidateAll();
+
+        if (raw != null && raw.getWallTime() != null) {
+            var changedAt = Instant.ofEpochMilli(raw.getWallTime().getValue());
+            this.lag.record(Duration.between(changedAt, Instant.now()));
+        }
+    }
+
+    private Retry backoff(String message) {
+        return Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(this.properties.getMinBackoffInMs()))
+                .maxBackoff(Duration.ofMillis(this.properties.getMaxBackoffInMs()))
+                .transientErrors(true)
+                .doBeforeRetry(signal -> log.warn(message + signal.failure()));
+    }
+
+    // a member of a replica set has a set name, a mongos answers "isdbgrid", both open change streams
+    private static boolean supportsChangeStreams(Document hello) {
+        return hello.get("setName") != null || "isdbgrid".equals(hello.get("msg"));
+    }
+
+    private static String idOf(BsonValue id) {
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops the cached {@link PostCounts} when a post is saved or deleted, any change may move any count.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostCountEvictionListener extends PostEventListener {
+
+    private final PostCounts postCounts;
+
+    @Override
+    protected void saved(Post post) {
+        this.postCounts.invalidateAll();
+    }
+
+    @Override
+    protected void deleted(String id) {
+        this.postCounts.invalidateAll();
+    }
+
+    @Override
+    protected void deletedMany() {
+        this.postCounts.invalidateAll();
+    }
+
+}
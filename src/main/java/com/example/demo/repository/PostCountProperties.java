@@ -0,0 +1,16 @@
+package com.example.demo.repository;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "posts.count")
+@Data
+public class PostCountProperties {
+
+    // the max number of distinct queries whose counts are kept in memory
+    private long maximumSize = 1000;
+
+    // bounds how long a change made by another instance is not reflected in the counts
+    private long timeToLiveInMs = 30000; // 30s
+
+}
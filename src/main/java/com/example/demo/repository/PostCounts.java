@@ -0,0 +1,68 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Counts the posts matching a search for the pagination, without a full count on every page.
+ * <p>
+ * The unfiltered count is the estimated count from the collection metadata. The count of a search, by title or
+ * by text, is exact, and cached per query for a short time, it is invalidated by {@link PostCountEvictionListener}
+ * when a post is saved or deleted through this instance, and by {@link PostChangeStream} when it is changed
+ * through any instance.
+ */
+@Component
+public class PostCounts {
+
+    public static final String CACHE_NAME = "posts.counts";
+
+    // keeps the counts of the text searches apart from the counts of the title searches
+    private static final String TEXT_KEY_PREFIX = "$text:";
+
+    private final PostRepository posts;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AsyncCache<String, Long> cache;
+
+    public PostCounts(PostRepository posts,
+                      ReactiveMongoTemplate mongoTemplate,
+                      PostCountProperties properties,
+                      MeterRegistry meterRegistry) {
+        this.posts = posts;
+        this.mongoTemplate = mongoTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(properties.getTimeToLiveInMs()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, CACHE_NAME);
+    }
+
+    public Mono<Long> countByTitleContains(String q) {
+        if (!StringUtils.hasText(q)) {
+            return this.mongoTemplate.estimatedCount(Post.class);
+        }
+        // the search is a case sensitive regex, the query is the key as is, normalizing it would mix up the matches
+        return AsyncCaches.get(this.cache, q, this.posts::countByTitleContains);
+    }
+
+    public Mono<Long> countByText(String q, String language) {
+        return AsyncCaches.get(this.cache, TEXT_KEY_PREFIX + language + ':' + q,
+                key -> this.posts.countByText(q, language));
+    }
+
+    public void invalidateAll() {
+        this.cache.synchronous().invalidateAll();
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+
+/**
+ * The base of the listeners keeping what is derived from the posts in line with the posts saved or deleted through
+ * this instance, it tells the deletion of a single post from the deletion of many.
+ */
+abstract class PostEventListener extends AbstractMongoEventListener<Post> {
+
+    @Override
+    public final void onAfterSave(AfterSaveEvent<Post> event) {
+        saved(event.getSource());
+    }
+
+    @Override
+    public final void onAfterDelete(AfterDeleteEvent<Post> event) {
+        // the source is the delete query, a single post is deleted by its id
+        var id = event.getSource().get("_id");
+        if (id != null && !(id instanceof Document)) {
+            deleted(id.toString());
+        } else {
+            deletedMany();
+        }
+    }
+
+    protected abstract void saved(Post post);
+
+    protected abstract void deleted(String id);
+
+    // the deleted posts are unknown
+    protected abstract void deletedMany();
+
+}
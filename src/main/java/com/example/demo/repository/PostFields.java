@@ -0,0 +1,88 @@
+package com.example.demo.repository;
+
+import org.springframework.data.mongodb.core.query.MongoExpression;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The fields of the posts read by a query, turned into a projection so the others are never read from disk.
+ * <p>
+ * {@code excerpt} is not stored, it is cut from the head of {@code content} by the server.
+ *
+ * @param include       the fields to include, empty means the whole post
+ * @param excerptLength the length of the excerpt in code points
+ */
+public record PostFields(Set<String> include, int excerptLength) {
+
+    public static final String EXCERPT = "excerpt";
+
+    public static final Set<String> NAMES = Set.of(
+            "id", "title", "content", "status", "createdDate", "createdBy", "lastModifiedDate", "lastModifiedBy",
+            "version", EXCERPT
+    );
+
+    public static final PostFields ALL = new PostFields(Set.of(), 0);
+
+    // what a list of posts shows, without the body
+    private static final Set<String> SUMMARY = Set.of(
+            "id", "title", "status", "createdDate", "createdBy", "lastModifiedDate", "lastModifiedBy", "version",
+            EXCERPT
+    );
+
+    public PostFields {
+        include = Set.copyOf(include);
+    }
+
+    public static PostFields summary(int excerptLength) {
+        return new PostFields(SUMMARY, excerptLength);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a field is not a field of the posts
+     */
+    public static PostFields of(Collection<String> names, int excerptLength) {
+        var include = new LinkedHashSet<String>();
+        for (String name : names) {
+            var field = name.trim();
+            if (!NAMES.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+            include.add(field);
+        }
+        return include.isEmpty() ? ALL : new PostFields(include, excerptLength);
+    }
+
+    public boolean isAll() {
+        return this.include.isEmpty();
+    }
+
+    /**
+     * @return these fields plus the given one, which the caller needs whatever the client asked for
+     */
+    public PostFields with(String name) {
+        if (isAll() || this.include.contains(name)) {
+            return this;
+        }
+        var include = new LinkedHashSet<>(this.include);
+        include.add(name);
+        return new PostFields(include, this.excerptLength);
+    }
+
+    void applyTo(Query query) {
+        if (isAll()) {
+            return;
+        }
+        var fields = query.fields();
+        this.include.stream()
+                .filter(name -> !EXCERPT.equals(name))
+                .forEach(fields::include);
+        if (this.include.contains(EXCERPT)) {
+            fields.project(MongoExpression.create("{ $substrCP: [ '$content', 0, " + this.excerptLength + " ] }"))
+                    .as(EXCERPT);
+        }
+    }
+
+}
@@ -6,7 +6,7 @@ import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface PostRepository extends ReactiveMongoRepository<Post, String> {
+public interface PostRepository extends ReactiveMongoRepository<Post, String>, PostRepositoryCustom {
 
     Flux<Post> findByTitleContains(String q, Pageable pageable);
 
@@ -0,0 +1,62 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+public interface PostRepositoryCustom {
+
+    /**
+     * Finds the posts whose title contains {@code q}, newest first, which come after the post identified by
+     * {@code createdDate} and {@code id} in that order. Both null starts from the newest post.
+     * <p>
+     * Unlike skip/limit, the range predicate seeks on the {@code createdDate, _id} index, so the cost of a page
+     * does not grow with its depth.
+     */
+    Flux<Post> findByKeyset(String q, LocalDateTime createdDate, String id, int limit, PostFields fields);
+
+    /**
+     * Finds the posts whose title contains {@code q}, newest first, skipping the first {@code offset} posts.
+     * Unlike a {@link org.springframework.data.domain.Pageable}, the limit is independent of the offset, so a page
+     * can fetch one more post to tell if there is a next page without counting.
+     * <p>
+     * Like the other finders, only the given {@code fields} are read, the other properties of the posts are null.
+     */
+    Flux<Post> findByOffset(String q, long offset, int limit, PostFields fields);
+
+    /**
+     * Finds the posts matching the words of {@code q} in the text index over title and content, the most
+     * relevant first. The words are stemmed by the rules of {@code language}.
+     */
+    Flux<Post> findByText(String q, String language, long offset, int limit, PostFields fields);
+
+    Mono<Post> findById(String id, PostFields fields);
+
+    /**
+     * Sets the changed fields of the post, bumps its version and its modified date, in a single round trip. Unlike
+     * a save, the fields which are not changed are not written, and a concurrent change of another field is kept.
+     *
+     * @param version the version the post is expected to have, {@code null} updates any version
+     * @return the updated post, empty if no post has this id and version
+     */
+    Mono<Post> update(String id, Long version, PostUpdate changes);
+
+    /**
+     * Streams all the posts in the order of their ids, from the one after {@code id}, or from the first one when
+     * {@code id} is null. The cursor fetches {@code batchSize} posts per round trip, as they are requested.
+     */
+    Flux<Post> findAllAfter(ObjectId id, int batchSize);
+
+    /**
+     * Deletes the post in a single round trip, without reading it first.
+     *
+     * @return the number of the deleted posts, 0 if no post has this id
+     */
+    Mono<Long> removeById(String id);
+
+    Mono<Long> countByText(String q, String language);
+
+}
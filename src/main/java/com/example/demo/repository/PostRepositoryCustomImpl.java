@@ -0,0 +1,147 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import com.example.demo.domain.Username;
+import com.mongodb.client.result.DeleteResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.ReactiveAuditorAware;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+@RequiredArgsConstructor
+class PostRepositoryCustomImpl implements PostRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    // missing from the slices of the tests which do not load the mongo config, the updates are then anonymous
+    private final ObjectProvider<ReactiveAuditorAware<Username>> auditorAware;
+
+    @Override
+    public Flux<Post> findByKeyset(String q, LocalDateTime createdDate, String id, int limit, PostFields fields) {
+        var criteria = new ArrayList<Criteria>();
+        if (StringUtils.hasText(q)) {
+            criteria.add(titleContains(q));
+        }
+        if (createdDate != null && id != null) {
+            criteria.add(new Criteria().orOperator(
+                    Criteria.where("createdDate").lt(createdDate),
+                    Criteria.where("createdDate").is(createdDate).and("_id").lt(id)
+            ));
+        }
+
+        var query = new Query();
+        if (!criteria.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(criteria));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "createdDate", "_id")).limit(limit);
+        fields.applyTo(query);
+        return this.mongoTemplate.find(query, Post.class);
+    }
+
+    @Override
+    public Flux<Post> findByOffset(String q, long offset, int limit, PostFields fields) {
+        var query = StringUtils.hasText(q) ? Query.query(titleContains(q)) : new Query();
+        query.with(Sort.by(Sort.Direction.DESC, "createdDate")).skip(offset).limit(limit);
+        fields.applyTo(query);
+        return this.mongoTemplate.find(query, Post.class);
+    }
+
+    @Override
+    public Flux<Post> findByText(String q, String language, long offset, int limit, PostFields fields) {
+        var query = TextQuery.queryText(textMatching(q, language)).sortByScore();
+        query.skip(offset).limit(limit);
+        fields.applyTo(query);
+        return this.mongoTemplate.find(query, Post.class);
+    }
+
+    @Override
+    public Mono<Post> findById(String id, PostFields fields) {
+        var query = Query.query(Criteria.where("_id").is(id));
+        fields.applyTo(query);
+        return this.mongoTemplate.findOne(query, Post.class);
+    }
+
+    @Override
+    public Mono<Post> update(String id, Long version, PostUpdate changes) {
+        var criteria = Criteria.where("_id").is(id);
+        if (version != null) {
+            criteria.and("version").is(version);
+        }
+        var update = new Update()
+                .set("lastModifiedDate", LocalDateTime.now())
+                .inc("version", 1);
+        if (changes.title() != null) {
+            update.set("title", changes.title());
+        }
+        if (changes.content() != null) {
+            update.set("content", changes.content());
+        }
+        if (changes.status() != null) {
+            update.set("status", changes.status());
+        }
+
+        var auditor = this.auditorAware.getIfAvailable();
+        var modifiedBy = auditor == null ? Mono.<Username>empty() : auditor.getCurrentAuditor();
+        return modifiedBy
+                .doOnNext(username -> update.set("lastModifiedBy", username))
+                .then(Mono.defer(() -> this.mongoTemplate.findAndModify(Query.query(criteria), update,
+                        FindAndModifyOptions.options().returnNew(true), Post.class)))
+                .doOnNext(this::publishSaved);
+    }
+
+    // a findAndModify does not raise the events of a save, the listeners keeping the caches in line expect them
+    private void publishSaved(Post post) {
+        var document = new Document();
+        this.mongoTemplate.getConverter().write(post, document);
+        this.eventPublisher.publishEvent(
+                new AfterSaveEvent<>(post, document, this.mongoTemplate.getCollectionName(Post.class)));
+    }
+
+    @Override
+    public Flux<Post> findAllAfter(ObjectId id, int batchSize) {
+        var query = id == null ? new Query() : Query.query(Criteria.where("_id").gt(id));
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(batchSize);
+        return this.mongoTemplate.find(query, Post.class);
+    }
+
+    @Override
+    public Mono<Long> removeById(String id) {
+        return this.mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), Post.class)
+                .map(DeleteResult::getDeletedCount);
+    }
+
+    @Override
+    public Mono<Long> countByText(String q, String language) {
+        return this.mongoTemplate.count(Query.query(textMatching(q, language)), Post.class);
+    }
+
+    private static TextCriteria textMatching(String q, String language) {
+        return TextCriteria.forLanguage(language).matching(q);
+    }
+
+    // the same predicate as the derived findByTitleContains
+    private static Criteria titleContains(String q) {
+        return Criteria.where("title").regex(Pattern.quote(q));
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.example.demo.repository;
+
+/**
+ * The id and title of a post, all the title suggestions need.
+ */
+public record PostTitle(String id, String title) {
+}
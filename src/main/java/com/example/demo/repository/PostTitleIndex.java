@@ -0,0 +1,253 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An in-memory index of the post titles for the prefix suggestions.
+ * <p>
+ * The titles are kept in an array sorted by their lower cased form, a lookup is a binary search for the first
+ * title starting with the prefix followed by a scan of the next ones, it touches no I/O and allocates only the
+ * result. The array is replaced as a whole on every change, the readers never lock and writes are rare.
+ * <p>
+ * It is built at startup, kept current by {@link PostTitleIndexUpdater} for the changes made through this
+ * instance, and rebuilt from time to time to pick up the changes made by the other instances. The changes applied
+ * while a rebuild reads the titles are recorded, and applied again to the titles it read.
+ */
+@Component
+@Slf4j
+public class PostTitleIndex {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::key).thenComparing(e -> e.post().id());
+
+    // a rough estimate of the JVM footprint of the Strings, the Entry, the PostTitle, the array slot and the node of
+    // the key map of a title
+    private static final int ENTRY_OVERHEAD_BYTES = 208;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // the key of every post in the index, to find its entry by a binary search, only used by the writers
+    private final Map<String, String> keysById = new HashMap<>();
+
+    // the changes applied since the running rebuild started, a null title is a removal, null when none is running
+    private List<PostTitle> changesDuringRebuild;
+
+    private boolean rebuildRequested;
+
+    public PostTitleIndex(ReactiveMongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        Gauge.builder("posts.suggest.index.size", this, it -> it.snapshot.entries.length)
+                .description("The number of titles in the post title index")
+                .register(meterRegistry);
+        Gauge.builder("posts.suggest.index.memory", this, it -> it.snapshot.estimatedBytes)
+                .description("The estimated heap used by the post title index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the titles starting with the prefix ignoring the case, in alphabetical order
+     */
+    public List<PostTitle> suggest(String prefix, int limit) {
+        var entries = this.snapshot.entries;
+        var key = normalize(prefix);
+        int from = lowerBound(entries, key);
+        var result = new ArrayList<PostTitle>(Math.min(limit, entries.length - from));
+        for (int i = from; i < entries.length && result.size() < limit && entries[i].key.startsWith(key); i++) {
+            result.add(entries[i].post);
+        }
+        return result;
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${posts.suggest.rebuild-interval-in-ms:300000}",
+            initialDelayString = "${posts.suggest.rebuild-interval-in-ms:300000}")
+    public void rebuild() {
+        synchronized (this) {
+            // the running rebuild may have read the posts before the change asking for this one, run it again after
+            if (this.changesDuringRebuild != null) {
+                this.rebuildRequested = true;
+                return;
+            }
+            this.changesDuringRebuild = new ArrayList<>();
+        }
+        var query = new Query();
+        query.fields().include("title");
+        this.mongoTemplate.find(query, Post.class)
+                .map(post -> new PostTitle(post.getId(), post.getTitle()))
+                .collectList()
+                .subscribe(
+                        titles -> {
+                            completeRebuild(titles);
+                            log.debug("rebuilt the post title index with {} titles", titles.size());
+                        },
+                        err -> {
+                            completeRebuild(null);
+                            log.error("error when rebuilding the post title index: " + err);
+                        }
+                );
+    }
+
+    // null titles keep the current snapshot, the read failed
+    private void completeRebuild(List<PostTitle> titles) {
+        boolean again;
+        synchronized (this) {
+            if (titles != null) {
+                var byId = new LinkedHashMap<String, PostTitle>();
+                titles.forEach(title -> byId.put(title.id(), title));
+                this.changesDuringRebuild.forEach(change -> byId.put(change.id(), change));
+                replaceAll(byId.values());
+            }
+            this.changesDuringRebuild = null;
+            again = this.rebuildRequested;
+            this.rebuildRequested = false;
+        }
+        if (again) {
+            rebuild();
+        }
+    }
+
+    public synchronized void replaceAll(Collection<PostTitle> titles) {
+        var entries = titles.stream()
+                .filter(it -> it.title() != null)
+                .map(Entry::of)
+                .sorted(ORDER)
+                .toArray(Entry[]::new);
+        this.keysById.clear();
+        for (Entry entry : entries) {
+            this.keysById.put(entry.post.id(), entry.key);
+        }
+        this.snapshot = Snapshot.of(entries);
+    }
+
+    /**
+     * Adds the post, or moves it to its new title, a null title removes it.
+     */
+    public synchronized void put(PostTitle title) {
+        record(title);
+        var entries = this.snapshot.entries;
+        var added = title.title() != null ? Entry.of(title) : null;
+        int removeAt = indexOf(entries, title.id());
+        if (added != null && removeAt >= 0 && ORDER.compare(entries[removeAt], added) == 0) {
+            // the same key, the entry stays at its place
+            var replaced = entries.clone();
+            replaced[removeAt] = added;
+            this.snapshot = Snapshot.of(replaced);
+            return;
+        }
+        int insertAt = added != null ? -Arrays.binarySearch(entries, added, ORDER) - 1 : -1;
+        if (removeAt < 0 && insertAt < 0) {
+            return;
+        }
+        this.keysById.remove(title.id());
+        if (added != null) {
+            this.keysById.put(title.id(), added.key);
+        }
+        this.snapshot = Snapshot.of(splice(entries, removeAt, insertAt, added));
+    }
+
+    public synchronized void remove(String id) {
+        record(new PostTitle(id, null));
+        var entries = this.snapshot.entries;
+        int removeAt = indexOf(entries, id);
+        if (removeAt >= 0) {
+            this.keysById.remove(id);
+            this.snapshot = Snapshot.of(splice(entries, removeAt, -1, null));
+        }
+    }
+
+    private void record(PostTitle change) {
+        if (this.changesDuringRebuild != null) {
+            this.changesDuringRebuild.add(change);
+        }
+    }
+
+    // the index of the entry of the post, found by its key, -1 if the post is not in the index
+    private int indexOf(Entry[] entries, String id) {
+        var key = this.keysById.get(id);
+        if (key == null) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(entries, new Entry(key, new PostTitle(id, null)), ORDER);
+        return Math.max(index, -1);
+    }
+
+    // a single copy of the entries, without the one at removeAt and with the added one before the one at insertAt,
+    // both indexes are in the given entries, -1 for none
+    private static Entry[] splice(Entry[] entries, int removeAt, int insertAt, Entry added) {
+        var result = new Entry[entries.length - (removeAt >= 0 ? 1 : 0) + (added != null ? 1 : 0)];
+        int next = 0;
+        for (int i = 0; i <= entries.length; i++) {
+            if (i == insertAt) {
+                result[next++] = added;
+            }
+            if (i < entries.length && i != removeAt) {
+                result[next++] = entries[i];
+            }
+        }
+        return result;
+    }
+
+    private static int lowerBound(Entry[] entries, String key) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].key.compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String normalize(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(String key, PostTitle post) {
+
+        static Entry of(PostTitle post) {
+            return new Entry(normalize(post.title()), post);
+        }
+
+    }
+
+    private record Snapshot(Entry[] entries, long estimatedBytes) {
+
+        static final Snapshot EMPTY = new Snapshot(new Entry[0], 0);
+
+        static Snapshot of(Entry[] entries) {
+            long bytes = 0;
+            for (Entry entry : entries) {
+                // toLowerCase returns the title itself when it is lower cased already, the key then costs nothing
+                bytes += ENTRY_OVERHEAD_BYTES + entry.post.id().length() + entry.post.title().length()
+                        + (entry.key == entry.post.title() ? 0 : entry.key.length());
+            }
+            return new Snapshot(entries, bytes);
+        }
+
+    }
+
+}
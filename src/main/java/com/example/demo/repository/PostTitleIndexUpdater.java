@@ -0,0 +1,31 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the posts saved or deleted through this instance to the {@link PostTitleIndex}.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostTitleIndexUpdater extends PostEventListener {
+
+    private final PostTitleIndex postTitleIndex;
+
+    @Override
+    protected void saved(Post post) {
+        this.postTitleIndex.put(new PostTitle(post.getId(), post.getTitle()));
+    }
+
+    @Override
+    protected void deleted(String id) {
+        this.postTitleIndex.remove(id);
+    }
+
+    @Override
+    protected void deletedMany() {
+        this.postTitleIndex.rebuild();
+    }
+
+}
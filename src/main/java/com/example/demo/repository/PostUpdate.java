@@ -0,0 +1,14 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.Post;
+
+/**
+ * The fields of a post to change, a null field is left as is.
+ */
+public record PostUpdate(String title, String content, Post.Status status) {
+
+    public boolean isEmpty() {
+        return this.title == null && this.content == null && this.status == null;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.RevokedToken;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+public interface RevokedTokenRepository extends ReactiveMongoRepository<RevokedToken, String> {
+
+    Flux<RevokedToken> findByExpiresAtAfter(Instant time);
+
+    Flux<RevokedToken> findByRevokedAtAfter(Instant time);
+
+}
@@ -0,0 +1,64 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.User;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * A bounded, time limited cache of the users by username, shared by the login and the user endpoints.
+ * <p>
+ * Concurrent lookups of the same missing username wait for a single query, and a username which does not
+ * exist is not cached. The entries are invalidated by {@link UserCacheEvictionListener} when a user is
+ * saved or deleted through this instance.
+ */
+@Component
+public class UserCache {
+
+    public static final String CACHE_NAME = "users";
+
+    private final UserRepository users;
+
+    private final AsyncCache<String, User> cache;
+
+    private final boolean enabled;
+
+    public UserCache(UserRepository users, UserCacheProperties properties, MeterRegistry meterRegistry) {
+        this.users = users;
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(properties.getTimeToLiveInMs()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, CACHE_NAME);
+    }
+
+    public Mono<User> findByUsername(String username) {
+        if (!this.enabled) {
+            return this.users.findByUsername(username);
+        }
+        return AsyncCaches.get(this.cache, username, this.users::findByUsername);
+    }
+
+    public void invalidate(String username) {
+        this.cache.synchronous().invalidate(username);
+    }
+
+    /**
+     * Invalidates the user with the given id, whatever the username it is cached under.
+     */
+    public void invalidateById(Object id) {
+        this.cache.synchronous().asMap().values().removeIf(user -> id.equals(user.getId()));
+    }
+
+    public void invalidateAll() {
+        this.cache.synchronous().invalidateAll();
+    }
+
+}
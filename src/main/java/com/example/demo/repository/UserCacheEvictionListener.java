@@ -0,0 +1,35 @@
+package com.example.demo.repository;
+
+import com.example.demo.domain.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link UserCache} in line with the changes of the users made through the mongo template.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCacheEvictionListener extends AbstractMongoEventListener<User> {
+
+    private final UserCache userCache;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        var user = event.getSource();
+        // the username may have changed, the stale entry is then cached under the old one
+        if (user.getId() != null) {
+            this.userCache.invalidateById(user.getId());
+        }
+        this.userCache.invalidate(user.getUsername());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<User> event) {
+        // only the query of the deletion is known here, not the deleted users
+        this.userCache.invalidateAll();
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.example.demo.repository;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "user-cache")
+@Data
+public class UserCacheProperties {
+
+    private boolean enabled = true;
+
+    // the max number of users kept in memory
+    private long maximumSize = 10000;
+
+    // bounds how long a change made outside of this instance stays invisible
+    private long timeToLiveInMs = 300000; // 5m
+
+}
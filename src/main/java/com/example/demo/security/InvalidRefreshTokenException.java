@@ -0,0 +1,9 @@
+package com.example.demo.security;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException() {
+        super("Refresh token is invalid, expired or already used.");
+    }
+
+}
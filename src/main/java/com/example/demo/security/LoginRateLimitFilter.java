@@ -0,0 +1,126 @@
+package com.example.demo.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Throttles {@code POST /auth/login} per client IP and per username before the credentials reach the
+ * {@link org.springframework.security.authentication.ReactiveAuthenticationManager}, so rejected attempts cost
+ * no password hashing.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LoginRateLimitFilter implements WebFilter {
+
+    static final String LOGIN_PATH = "/auth/login";
+
+    // a login request is tiny, do not buffer more than this to read the username
+    private static final int MAX_BODY_SIZE = 8 * 1024;
+
+    private final LoginRateLimiter rateLimiter;
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var request = exchange.getRequest();
+        if (!this.rateLimiter.isEnabled()
+                || request.getMethod() != HttpMethod.POST
+                || !LOGIN_PATH.equals(request.getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+
+        long ipWait = this.rateLimiter.tryAcquireForIp(clientIp(request));
+        if (ipWait > 0) {
+            return reject(exchange, ipWait);
+        }
+
+        return DataBufferUtils.join(request.getBody(), MAX_BODY_SIZE)
+                .map(this::toBytes)
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> {
+                    String username = readUsername(body);
+                    if (username != null) {
+                        long usernameWait = this.rateLimiter.tryAcquireForUsername(username);
+                        if (usernameWait > 0) {
+                            return reject(exchange, usernameWait);
+                        }
+                    }
+                    var bufferFactory = exchange.getResponse().bufferFactory();
+                    return chain.filter(exchange.mutate().request(replay(request, body, bufferFactory)).build());
+                })
+                // thrown by join, the controller is never reached with a body over the limit
+                .onErrorResume(DataBufferLimitException.class, e -> tooLarge(exchange));
+    }
+
+    private byte[] toBytes(DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    // a body which can not be read is left to the controller to reject
+    private String readUsername(byte[] body) {
+        try {
+            var username = this.objectMapper.readTree(body).path("username");
+            return username.isTextual() ? username.asText() : null;
+        } catch (IOException e) {
+            log.debug("can not read the username of the login request: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // the original body is consumed, hand the buffered bytes to the controller instead
+    private static ServerHttpRequest replay(ServerHttpRequest request, byte[] body, DataBufferFactory bufferFactory) {
+        return new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.defer(() -> Flux.just(bufferFactory.wrap(body)));
+            }
+        };
+    }
+
+    private static String clientIp(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return "unknown";
+        }
+        return remoteAddress.getAddress().getHostAddress();
+    }
+
+    private static Mono<Void> tooLarge(ServerWebExchange exchange) {
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.PAYLOAD_TOO_LARGE);
+        return response.setComplete();
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, long waitMillis) {
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf((waitMillis + 999) / 1000));
+        return response.setComplete();
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.example.demo.security;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "login-rate-limit")
+@Validated
+@Data
+public class LoginRateLimitProperties {
+
+    private boolean enabled = true;
+
+    @Valid
+    private Limit perIp = new Limit(20, 20);
+
+    @Valid
+    private Limit perUsername = new Limit(5, 5);
+
+    // a bucket which is full and not used for this long is evicted
+    private long idleTimeoutInMs = 600000; // 10m
+
+    private long sweepIntervalInMs = 60000; // 1m
+
+    @Data
+    public static class Limit {
+
+        // the burst of attempts allowed at once
+        @Positive
+        private int capacity;
+
+        // the sustained rate of attempts
+        @Positive
+        private int refillPerMinute;
+
+        public Limit() {
+        }
+
+        public Limit(int capacity, int refillPerMinute) {
+            this.capacity = capacity;
+            this.refillPerMinute = refillPerMinute;
+        }
+
+    }
+
+}
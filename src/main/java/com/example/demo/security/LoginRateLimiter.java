@@ -0,0 +1,79 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the login attempts per client IP and per username with in-memory token buckets.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final LoginRateLimitProperties properties;
+
+    private final TokenBucketStore ipBuckets;
+
+    private final TokenBucketStore usernameBuckets;
+
+    private final Counter ipRejections;
+
+    private final Counter usernameRejections;
+
+    public LoginRateLimiter(LoginRateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ipBuckets = new TokenBucketStore(properties.getPerIp());
+        this.usernameBuckets = new TokenBucketStore(properties.getPerUsername());
+        this.ipRejections = meterRegistry.counter("auth.login.throttled", "limit", "ip");
+        this.usernameRejections = meterRegistry.counter("auth.login.throttled", "limit", "username");
+        meterRegistry.gauge("auth.login.buckets", Tags.of("limit", "ip"), this.ipBuckets, TokenBucketStore::size);
+        meterRegistry.gauge("auth.login.buckets", Tags.of("limit", "username"), this.usernameBuckets,
+                TokenBucketStore::size);
+    }
+
+    public boolean isEnabled() {
+        return this.properties.isEnabled();
+    }
+
+    /**
+     * @return 0 if the attempt is allowed, otherwise the millis to wait before the next attempt
+     */
+    public long tryAcquireForIp(String ip) {
+        long waitNanos = this.ipBuckets.tryConsume(ip, System.nanoTime());
+        if (waitNanos > 0) {
+            this.ipRejections.increment();
+        }
+        return toMillis(waitNanos);
+    }
+
+    /**
+     * @return 0 if the attempt is allowed, otherwise the millis to wait before the next attempt
+     */
+    public long tryAcquireForUsername(String username) {
+        // usernames only differing in case must share the same bucket
+        long waitNanos = this.usernameBuckets.tryConsume(username.toLowerCase(Locale.ROOT), System.nanoTime());
+        if (waitNanos > 0) {
+            this.usernameRejections.increment();
+        }
+        return toMillis(waitNanos);
+    }
+
+    // rounds up, a wait shorter than a milli must not be reported as allowed
+    private static long toMillis(long nanos) {
+        return (nanos + 999_999) / 1_000_000;
+    }
+
+    @Scheduled(fixedDelayString = "${login-rate-limit.sweep-interval-in-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(this.properties.getIdleTimeoutInMs());
+        this.ipBuckets.evictIdle(now, idleNanos);
+        this.usernameBuckets.evictIdle(now, idleNanos);
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.example.demo.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "password-hashing")
+@Data
+public class PasswordHashingProperties {
+
+    // the max number of passwords verified at the same time, keeps cores free for the other requests
+    private int maxConcurrency = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // the max number of logins waiting for a hashing thread, further logins are rejected
+    private int queueCapacity = 100;
+
+    // sent as Retry-After when a login is rejected
+    private long retryAfterInMs = 1000; // 1s
+
+}
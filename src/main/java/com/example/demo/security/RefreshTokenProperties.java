@@ -0,0 +1,16 @@
+package com.example.demo.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "refresh-token")
+@Data
+public class RefreshTokenProperties {
+
+    // a session expires when it is not refreshed for this long
+    private long validityInMs = 1209600000; // 14d
+
+    // the max length of a session, a password login is required again after it
+    private long maxSessionInMs = 2592000000L; // 30d
+
+}
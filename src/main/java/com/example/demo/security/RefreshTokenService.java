@@ -0,0 +1,120 @@
+package com.example.demo.security;
+
+import com.example.demo.domain.RefreshToken;
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserCache;
+import com.example.demo.security.jwt.TokenDigest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and rotates the opaque refresh tokens, which mint new access tokens without verifying the password
+ * again.
+ * <p>
+ * Only the SHA-256 digest of a token is stored, and a token is removed atomically when it is used, so a
+ * token can be exchanged only once. The new token inherits the start of the session, which bounds the
+ * sliding session to {@code refresh-token.max-session-in-ms}. A logout removes the token, or all the tokens of
+ * the user when the client does not send it.
+ */
+@Component
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final UserCache users;
+
+    private final RefreshTokenProperties properties;
+
+    /**
+     * Starts a new session for a user who has just logged in with a password.
+     */
+    public Mono<String> issue(String username) {
+        return issue(username, Instant.now());
+    }
+
+    /**
+     * Exchanges a refresh token for a new one, and the current authentication of its user.
+     */
+    public Mono<Rotation> rotate(String refreshToken) {
+        var now = Instant.now();
+        var query = Query.query(Criteria.where("_id").is(TokenDigest.of(refreshToken).toHex())
+                .and("expiresAt").gt(now));
+        return this.mongoTemplate.findAndRemove(query, RefreshToken.class)
+                .switchIfEmpty(Mono.error(InvalidRefreshTokenException::new))
+                .flatMap(used -> this.users.findByUsername(used.getUsername())
+                        .filter(User::isActive)
+                        .switchIfEmpty(Mono.error(InvalidRefreshTokenException::new))
+                        .flatMap(user -> issue(user.getUsername(), used.getSessionStartedAt())
+                                .map(token -> new Rotation(toAuthentication(user), token))));
+    }
+
+    /**
+     * Ends the session of a refresh token, an unknown or already used token is ignored.
+     */
+    public Mono<Void> revoke(String refreshToken) {
+        var query = Query.query(Criteria.where("_id").is(TokenDigest.of(refreshToken).toHex()));
+        return this.mongoTemplate.remove(query, RefreshToken.class).then();
+    }
+
+    /**
+     * Ends all the sessions of a user.
+     */
+    public Mono<Void> revokeAll(String username) {
+        var query = Query.query(Criteria.where("username").is(username));
+        return this.mongoTemplate.remove(query, RefreshToken.class).then();
+    }
+
+    private Mono<String> issue(String username, Instant sessionStartedAt) {
+        var now = Instant.now();
+        var sessionEnd = sessionStartedAt.plus(Duration.ofMillis(this.properties.getMaxSessionInMs()));
+        var expiresAt = now.plus(Duration.ofMillis(this.properties.getValidityInMs()));
+        if (expiresAt.isAfter(sessionEnd)) {
+            expiresAt = sessionEnd;
+        }
+        if (!expiresAt.isAfter(now)) {
+            return Mono.error(InvalidRefreshTokenException::new);
+        }
+
+        var token = newToken();
+        var refreshToken = RefreshToken.builder()
+                .id(TokenDigest.of(token).toHex())
+                .username(username)
+                .sessionStartedAt(sessionStartedAt)
+                .issuedAt(now)
+                .expiresAt(expiresAt)
+                .build();
+        return this.mongoTemplate.insert(refreshToken).thenReturn(token);
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        this.random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static Authentication toAuthentication(User user) {
+        var authorities = AuthorityUtils.createAuthorityList(user.getRoles().toArray(new String[0]));
+        return new UsernamePasswordAuthenticationToken(user.getUsername(), null, authorities);
+    }
+
+    public record Rotation(Authentication authentication, String refreshToken) {
+    }
+
+}
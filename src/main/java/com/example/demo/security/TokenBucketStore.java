@@ -0,0 +1,89 @@
+package com.example.demo.security;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token buckets of the same limit, one per key.
+ * <p>
+ * The map is concurrent and every bucket is guarded by its own monitor, so the attempts of different keys
+ * never contend with each other.
+ */
+public class TokenBucketStore {
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final int capacity;
+
+    private final double tokensPerNano;
+
+    public TokenBucketStore(LoginRateLimitProperties.Limit limit) {
+        // a bucket which never refills would have no time to wait for the next token
+        Assert.isTrue(limit.getCapacity() > 0, "the capacity of a rate limit must be positive");
+        Assert.isTrue(limit.getRefillPerMinute() > 0, "the refill rate of a rate limit must be positive");
+        this.capacity = limit.getCapacity();
+        this.tokensPerNano = limit.getRefillPerMinute() / (double) TimeUnit.MINUTES.toNanos(1);
+    }
+
+    /**
+     * @return 0 if a token is consumed, otherwise the nanos to wait for the next token
+     */
+    public long tryConsume(String key, long nowNanos) {
+        return this.buckets.computeIfAbsent(key, k -> new TokenBucket(nowNanos)).tryConsume(nowNanos);
+    }
+
+    /**
+     * Evicts the buckets which are full again and not used since {@code idleNanos}, an evicted bucket is
+     * equivalent to a new one.
+     */
+    public void evictIdle(long nowNanos, long idleNanos) {
+        this.buckets.values().removeIf(bucket -> bucket.isIdle(nowNanos, idleNanos));
+    }
+
+    public int size() {
+        return this.buckets.size();
+    }
+
+    private final class TokenBucket {
+
+        private double tokens;
+
+        private long lastRefillNanos;
+
+        private long lastUsedNanos;
+
+        TokenBucket(long nowNanos) {
+            this.tokens = TokenBucketStore.this.capacity;
+            this.lastRefillNanos = nowNanos;
+            this.lastUsedNanos = nowNanos;
+        }
+
+        synchronized long tryConsume(long nowNanos) {
+            refill(nowNanos);
+            this.lastUsedNanos = nowNanos;
+            if (this.tokens >= 1) {
+                this.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - this.tokens) / TokenBucketStore.this.tokensPerNano);
+        }
+
+        synchronized boolean isIdle(long nowNanos, long idleNanos) {
+            refill(nowNanos);
+            return this.tokens >= TokenBucketStore.this.capacity && nowNanos - this.lastUsedNanos >= idleNanos;
+        }
+
+        private void refill(long nowNanos) {
+            long elapsed = nowNanos - this.lastRefillNanos;
+            if (elapsed > 0) {
+                this.tokens = Math.min(TokenBucketStore.this.capacity,
+                        this.tokens + elapsed * TokenBucketStore.this.tokensPerNano);
+                this.lastRefillNanos = nowNanos;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.example.demo.security.jwt;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes the roles claim of the tokens, every distinct roles string maps to one shared and immutable
+ * list of authorities.
+ * <p>
+ * The users only have a handful of distinct role combinations, so after the first token of every combination
+ * no authority is allocated any more. The registry is bounded, once full the authorities of an unseen
+ * combination are simply built without being kept.
+ */
+public class AuthorityRegistry {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private final ConcurrentHashMap<String, List<GrantedAuthority>> authorities = new ConcurrentHashMap<>();
+
+    private final int maximumSize;
+
+    public AuthorityRegistry() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public AuthorityRegistry(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public List<GrantedAuthority> authoritiesOf(String roles) {
+        var cached = this.authorities.get(roles);
+        if (cached != null) {
+            return cached;
+        }
+        var built = List.copyOf(AuthorityUtils.commaSeparatedStringToAuthorityList(roles));
+        // the size check is racy, the registry may exceed the bound by the number of concurrent callers
+        if (this.authorities.size() >= this.maximumSize) {
+            return built;
+        }
+        var previous = this.authorities.putIfAbsent(roles, built);
+        return previous != null ? previous : built;
+    }
+
+    public int size() {
+        return this.authorities.size();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.example.demo.security.jwt;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe bloom filter of {@link TokenDigest}s, the bit indexes are derived from the digest by
+ * double hashing, so no extra hashing is needed.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitSize;
+
+    private final int hashFunctions;
+
+    private final AtomicLong insertions = new AtomicLong();
+
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray(Math.toIntExact((m + 63) / 64));
+        this.bitSize = this.bits.length() * 64L;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) this.bitSize / n * Math.log(2)));
+    }
+
+    public void put(TokenDigest digest) {
+        long h1 = digest.hash1();
+        long h2 = digest.hash2();
+        for (int i = 0; i < this.hashFunctions; i++) {
+            long index = Math.floorMod(h1 + i * h2, this.bitSize);
+            long mask = 1L << index;
+            int word = (int) (index >>> 6);
+            long current;
+            do {
+                current = this.bits.get(word);
+            } while ((current & mask) == 0 && !this.bits.compareAndSet(word, current, current | mask));
+        }
+        this.insertions.incrementAndGet();
+    }
+
+    /**
+     * @return {@code false} if the digest is definitely not in the filter
+     */
+    public boolean mightContain(TokenDigest digest) {
+        long h1 = digest.hash1();
+        long h2 = digest.hash2();
+        for (int i = 0; i < this.hashFunctions; i++) {
+            long index = Math.floorMod(h1 + i * h2, this.bitSize);
+            if ((this.bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long insertions() {
+        return this.insertions.get();
+    }
+
+    /**
+     * The false positive probability expected for the current number of insertions.
+     */
+    public double expectedFalsePositiveProbability() {
+        double exponent = -(double) this.hashFunctions * this.insertions.get() / this.bitSize;
+        return Math.pow(1 - Math.exp(exponent), this.hashFunctions);
+    }
+
+}
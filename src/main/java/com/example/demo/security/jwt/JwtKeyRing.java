@@ -0,0 +1,184 @@
+package com.example.demo.security.jwt;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the keys configured in {@link JwtProperties#getKeys()}, indexed by their {@code kid}.
+ * <p>
+ * The signing key is the newest key whose {@code activeFrom} has passed, every key which is not
+ * retired yet is accepted for verification. {@link #refresh(Instant)} swaps in a new immutable snapshot,
+ * so the lookups in {@link #locate(JwsHeader)} are a plain map access without any locking.
+ */
+@Slf4j
+public class JwtKeyRing extends LocatorAdapter<Key> {
+
+    static final String DEFAULT_KID = "default";
+
+    private final JwtProperties.Algorithm algorithm;
+
+    private final List<JwtProperties.Key> keys;
+
+    private final Map<String, KeyMaterial> materials = new HashMap<>();
+
+    private volatile Snapshot snapshot;
+
+    public JwtKeyRing(JwtProperties properties) {
+        this.algorithm = properties.getAlgorithm();
+        if (properties.getKeys().isEmpty()) {
+            var key = new JwtProperties.Key();
+            key.setKid(DEFAULT_KID);
+            key.setSecret(properties.getSecretKey());
+            this.keys = List.of(key);
+        } else {
+            this.keys = List.copyOf(properties.getKeys());
+        }
+        this.keys.forEach(key -> {
+            Assert.hasText(key.getKid(), "every JWT key requires a kid");
+            this.materials.put(key.getKid(), toKeyMaterial(key));
+        });
+    }
+
+    private KeyMaterial toKeyMaterial(JwtProperties.Key key) {
+        if (!this.algorithm.isAsymmetric()) {
+            Assert.hasText(key.getSecret(), () -> "JWT key " + key.getKid() + " requires a secret");
+            var encoded = Base64.getEncoder().encodeToString(key.getSecret().getBytes());
+            var secretKey = Keys.hmacShaKeyFor(encoded.getBytes(StandardCharsets.UTF_8));
+            return new KeyMaterial(secretKey, secretKey);
+        }
+        if (!StringUtils.hasText(key.getPublicKey())) {
+            // only acceptable for a single instance, the other instances can not verify the tokens.
+            log.warn("no key pair is configured for JWT key {}, generating an ephemeral {} key pair",
+                    key.getKid(), this.algorithm);
+            KeyPair keyPair = this.algorithm == JwtProperties.Algorithm.ES256
+                    ? Jwts.SIG.ES256.keyPair().build()
+                    : Jwks.CRV.Ed25519.keyPair().build();
+            return new KeyMaterial(keyPair.getPrivate(), keyPair.getPublic());
+        }
+        try {
+            var keyFactory = KeyFactory.getInstance(this.algorithm == JwtProperties.Algorithm.ES256 ? "EC" : "EdDSA");
+            var publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(decode(key.getPublicKey())));
+            var privateKey = StringUtils.hasText(key.getPrivateKey())
+                    ? keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decode(key.getPrivateKey())))
+                    : null;
+            return new KeyMaterial(privateKey, publicKey);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid key pair of JWT key " + key.getKid(), e);
+        }
+    }
+
+    // accepts both the raw Base64 content and the PEM format.
+    private static byte[] decode(String encoded) {
+        var base64 = encoded.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "").replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+
+    public void refresh(Instant now) {
+        Map<String, Key> verificationKeys = new HashMap<>();
+        List<PublicJwk<?>> publicJwks = new ArrayList<>();
+        this.keys.stream()
+                .filter(key -> key.getRetireAt() == null || now.isBefore(key.getRetireAt()))
+                .forEach(key -> {
+                    var material = this.materials.get(key.getKid());
+                    verificationKeys.put(key.getKid(), material.verificationKey());
+                    if (material.verificationKey() instanceof PublicKey publicKey) {
+                        publicJwks.add(Jwks.builder().key(publicKey)
+                                .id(key.getKid())
+                                .algorithm(this.algorithm.name())
+                                .publicKeyUse("sig")
+                                .build());
+                    }
+                });
+
+        var signingKey = this.keys.stream()
+                .filter(key -> !key.isVerifyOnly() && verificationKeys.containsKey(key.getKid()))
+                .filter(key -> this.materials.get(key.getKid()).signingKey() != null)
+                .filter(key -> key.getActiveFrom() == null || !now.isBefore(key.getActiveFrom()))
+                .max(Comparator.comparing(JwtProperties.Key::getActiveFrom,
+                        Comparator.nullsFirst(Comparator.naturalOrder())))
+                .map(key -> new SigningKey(key.getKid(), this.materials.get(key.getKid()).signingKey()))
+                .orElseThrow(() -> new IllegalStateException("No active JWT signing key at " + now));
+
+        var previous = this.snapshot;
+        this.snapshot = new Snapshot(signingKey, Map.copyOf(verificationKeys), List.copyOf(publicJwks));
+        if (previous != null && !previous.signingKey().kid().equals(signingKey.kid())) {
+            log.info("rotated JWT signing key from {} to {}", previous.signingKey().kid(), signingKey.kid());
+        }
+    }
+
+    public SigningKey signingKey() {
+        return this.snapshot.signingKey();
+    }
+
+    /**
+     * The public keys which are accepted for verification, always empty for HS256.
+     */
+    public List<PublicJwk<?>> publicJwks() {
+        return this.snapshot.publicJwks();
+    }
+
+    /**
+     * Whether the tokens signed by the key are still accepted, false once the key is retired.
+     */
+    public boolean isAccepted(String kid) {
+        return this.snapshot.verificationKeys().containsKey(kid);
+    }
+
+    /**
+     * The key which verifies a token with the {@code kid} of its header.
+     */
+    public String kidOf(JwsHeader header) {
+        String kid = header.getKeyId();
+        // the tokens issued before the key ring was introduced do not carry a kid, they are signed by the secret key,
+        // which is the default key of the ring, whatever key signs the new tokens now.
+        return kid != null ? kid : DEFAULT_KID;
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = kidOf(header);
+        var key = this.snapshot.verificationKeys().get(kid);
+        if (key == null) {
+            throw new SignatureException("Unknown or retired JWT key: " + kid);
+        }
+        return key;
+    }
+
+    /**
+     * @param key a {@link javax.crypto.SecretKey} for HS256, otherwise a {@link java.security.PrivateKey}
+     */
+    public record SigningKey(String kid, Key key) {
+    }
+
+    private record KeyMaterial(Key signingKey, Key verificationKey) {
+    }
+
+    private record Snapshot(SigningKey signingKey, Map<String, Key> verificationKeys,
+                            List<PublicJwk<?>> publicJwks) {
+    }
+
+}
@@ -3,13 +3,110 @@ package com.example.demo.security.jwt;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigurationProperties(prefix = "jwt")
 @Data
 public class JwtProperties {
 
+    private Algorithm algorithm = Algorithm.HS256;
+
+    // used as the only HS256 key when no key ring is configured
     private String secretKey = "rzxlszyykpbgqcflzxsqcysyhljt";
 
     // validity in milliseconds
     private long validityInMs = 3600000; // 1h
 
+    // the key ring, the tokens without a kid are verified by the key of the kid "default", keep the former secret key
+    // under it until those tokens expire
+    private List<Key> keys = new ArrayList<>();
+
+    // how often the key ring is checked for keys to activate or retire
+    private long rotationCheckIntervalInMs = 60000; // 1m
+
+    // the max age of the JWK set published at /.well-known/jwks.json
+    private long jwksMaxAgeInMs = 300000; // 5m
+
+    private Compact compact = new Compact();
+
+    private Cache cache = new Cache();
+
+    private Revocation revocation = new Revocation();
+
+    public enum Algorithm {
+
+        HS256, ES256, EdDSA;
+
+        public boolean isAsymmetric() {
+            return this != HS256;
+        }
+
+    }
+
+    @Data
+    public static class Key {
+
+        // written into the kid header of the tokens signed by this key
+        private String kid;
+
+        // the shared secret of a HS256 key
+        private String secret;
+
+        // the Base64 encoded PKCS#8 private key of an ES256 or EdDSA key, not required for a verify only key
+        private String privateKey;
+
+        // the Base64 encoded X.509 public key of an ES256 or EdDSA key
+        private String publicKey;
+
+        // a verify only key is never used to sign new tokens
+        private boolean verifyOnly = false;
+
+        // the instant from when the key signs new tokens, null means immediately
+        private Instant activeFrom;
+
+        // the instant from when the key is not accepted any more, null means never
+        private Instant retireAt;
+
+    }
+
+    @Data
+    public static class Compact {
+
+        // writes the roles as a bitmask under "r" and omits iat, both formats are always accepted
+        private boolean enabled = false;
+
+        // the roles encodable in the bitmask, only append to it, the bits of the tokens in flight must not move
+        private List<String> roles = new ArrayList<>();
+
+    }
+
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        // the max number of verified tokens kept in memory
+        private long maximumSize = 10000;
+
+    }
+
+    @Data
+    public static class Revocation {
+
+        // the number of not yet expired revoked tokens the bloom filter is sized for
+        private long expectedInsertions = 100000;
+
+        // the target false positive probability of the bloom filter at expectedInsertions
+        private double falsePositiveProbability = 0.01;
+
+        // how often the tokens revoked by the other instances are added to the bloom filter
+        private long syncIntervalInMs = 10000; // 10s
+
+        // how often the bloom filter is rebuilt from scratch to drop the expired tokens
+        private long rebuildIntervalInMs = 3600000; // 1h
+
+    }
+
 }
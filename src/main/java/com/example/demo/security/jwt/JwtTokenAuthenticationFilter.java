@@ -5,12 +5,13 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 @RequiredArgsConstructor
 public class JwtTokenAuthenticationFilter implements WebFilter {
@@ -19,19 +20,39 @@ public class JwtTokenAuthenticationFilter implements WebFilter {
 
     private final JwtTokenProvider tokenProvider;
 
+    private final VerifiedTokenCache tokenCache;
+
+    private final TokenRevocationService revocations;
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
         String token = resolveToken(exchange.getRequest());
-        if (StringUtils.hasText(token) && this.tokenProvider.validateToken(token)) {
-            return Mono.fromCallable(() -> this.tokenProvider.getAuthentication(token))
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(authentication -> chain.filter(exchange)
-                    .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication)));
+        if (!StringUtils.hasText(token)) {
+            return chain.filter(exchange);
+        }
+        // the token is only verified when an authorization rule or a controller asks for the authentication,
+        // so a permitAll route costs no crypto, and it is verified at most once per request.
+        Mono<SecurityContext> securityContext = Mono.defer(() -> authenticate(token))
+                .map(SecurityContextImpl::new)
+                .cache();
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withSecurityContext(securityContext));
+    }
+
+    private Mono<Authentication> authenticate(String token) {
+        var digest = TokenDigest.of(token);
+        // verifying a HMAC signed token is cheaper than a thread hop, so do it on the calling thread.
+        var result = this.tokenCache.get(digest, token, this.tokenProvider::verify,
+                this.tokenProvider::isAccepted);
+        if (!result.isValid()) {
+            return Mono.empty();
         }
-        return chain.filter(exchange);
+        return this.revocations.isRevoked(digest)
+                .filter(revoked -> !revoked)
+                .map(notRevoked -> result.authentication());
     }
 
-    private String resolveToken(ServerHttpRequest request) {
+    public static String resolveToken(ServerHttpRequest request) {
         String bearerToken = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith(HEADER_PREFIX)) {
             return bearerToken.substring(7);
@@ -1,24 +1,31 @@
 package com.example.demo.security.jwt;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SecurityException;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import javax.crypto.SecretKey;
 
 import static java.util.stream.Collectors.joining;
@@ -30,25 +37,51 @@ public class JwtTokenProvider {
 
     private static final String AUTHORITIES_KEY = "roles";
 
+    private static final String COMPACT_AUTHORITIES_KEY = "r";
+
     private final JwtProperties jwtProperties;
 
-    private SecretKey secretKey;
+    private JwtKeyRing keyRing;
+
+    // the parser is immutable and thread-safe, build it once and share it for all requests.
+    private JwtParser jwtParser;
+
+    private final AuthorityRegistry authorityRegistry = new AuthorityRegistry();
+
+    private RoleTable roleTable;
 
     @PostConstruct
     public void init() {
-        var secret = Base64.getEncoder()
-                .encodeToString(this.jwtProperties.getSecretKey().getBytes());
-        this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.keyRing = new JwtKeyRing(this.jwtProperties);
+        this.keyRing.refresh(Instant.now());
+        this.jwtParser = Jwts.parser().keyLocator(this.keyRing).build();
+        this.roleTable = new RoleTable(this.jwtProperties.getCompact().getRoles());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.rotation-check-interval-in-ms:60000}")
+    public void rotateKeys() {
+        rotateKeys(Instant.now());
+    }
+
+    public void rotateKeys(Instant now) {
+        this.keyRing.refresh(now);
     }
 
     public String createToken(Authentication authentication) {
 
         String username = authentication.getName();
         Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
+        boolean compact = this.jwtProperties.getCompact().isEnabled();
         var claimsBuilder = Jwts.claims().subject(username);
         if (!authorities.isEmpty()) {
-            claimsBuilder.add(AUTHORITIES_KEY, authorities.stream()
-                    .map(GrantedAuthority::getAuthority).collect(joining(",")));
+            long mask = compact ? this.roleTable.encode(authorities) : -1;
+            if (mask >= 0) {
+                claimsBuilder.add(COMPACT_AUTHORITIES_KEY, mask);
+            } else {
+                // a role missing in the role table falls back to the plain roles claim
+                claimsBuilder.add(AUTHORITIES_KEY, authorities.stream()
+                        .map(GrantedAuthority::getAuthority).collect(joining(",")));
+            }
         }
 
         var claims = claimsBuilder.build();
@@ -56,38 +89,100 @@ public class JwtTokenProvider {
         Date now = new Date();
         Date validity = new Date(now.getTime() + this.jwtProperties.getValidityInMs());
 
-        return Jwts.builder().claims(claims).issuedAt(now).expiration(validity)
-                .signWith(this.secretKey, Jwts.SIG.HS256).compact();
+        var signingKey = this.keyRing.signingKey();
+        var builder = Jwts.builder().header().keyId(signingKey.kid()).and()
+                .claims(claims).expiration(validity);
+        // nothing reads iat, the compact profile leaves it out
+        if (!compact) {
+            builder.issuedAt(now);
+        }
+
+        return signWith(builder, signingKey.key()).compact();
 
     }
 
-    public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parser().verifyWith(this.secretKey).build()
-                .parseSignedClaims(token).getPayload();
+    private JwtBuilder signWith(JwtBuilder builder, Key key) {
+        return switch (this.jwtProperties.getAlgorithm()) {
+            case HS256 -> builder.signWith((SecretKey) key, Jwts.SIG.HS256);
+            case ES256 -> builder.signWith((PrivateKey) key, Jwts.SIG.ES256);
+            case EdDSA -> builder.signWith((PrivateKey) key, Jwts.SIG.EdDSA);
+        };
+    }
 
-        Object authoritiesClaim = claims.get(AUTHORITIES_KEY);
+    public List<PublicJwk<?>> getPublicJwks() {
+        return this.keyRing.publicJwks();
+    }
 
-        Collection<? extends GrantedAuthority> authorities = authoritiesClaim == null
-                ? AuthorityUtils.NO_AUTHORITIES
-                : AuthorityUtils.commaSeparatedStringToAuthorityList(authoritiesClaim.toString());
+    /**
+     * Parses and verifies the token once, and builds the {@link Authentication} from the verified claims.
+     * Unlike {@link #validateToken(String)} followed by {@link #getAuthentication(String)}, the signature is
+     * only checked a single time.
+     */
+    public JwtVerificationResult verify(String token) {
+        try {
+            var jws = this.jwtParser.parseSignedClaims(token);
+            Claims claims = jws.getPayload();
+            // parseSignedClaims will check expiration date. No need do here.
+            // But it accepts a token without one, which would never expire.
+            if (claims.getExpiration() == null) {
+                throw new MalformedJwtException("JWT has no expiration");
+            }
+            return JwtVerificationResult.valid(toAuthentication(claims, token), claims.getExpiration().toInstant(),
+                    this.keyRing.kidOf(jws.getHeader()));
+        } catch (ExpiredJwtException e) {
+            return rejected(JwtVerificationResult.Failure.EXPIRED, e);
+        } catch (SecurityException e) {
+            return rejected(JwtVerificationResult.Failure.INVALID_SIGNATURE, e);
+        } catch (MalformedJwtException | IllegalArgumentException e) {
+            return rejected(JwtVerificationResult.Failure.MALFORMED, e);
+        } catch (UnsupportedJwtException e) {
+            return rejected(JwtVerificationResult.Failure.UNSUPPORTED, e);
+        } catch (JwtException e) {
+            return rejected(JwtVerificationResult.Failure.INVALID, e);
+        }
+    }
 
-        User principal = new User(claims.getSubject(), "", authorities);
+    /**
+     * Whether a token verified earlier is still accepted, its key may have been retired since.
+     */
+    public boolean isAccepted(JwtVerificationResult result) {
+        return result.kid() == null || this.keyRing.isAccepted(result.kid());
+    }
 
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    public Authentication getAuthentication(String token) {
+        return toAuthentication(parseClaims(token), token);
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jws<Claims> claims = Jwts.parser().verifyWith(this.secretKey)
-                    .build().parseSignedClaims(token);
-            // parseClaimsJws will check expiration date. No need do here.
-            log.info("expiration date: {}", claims.getPayload().getExpiration());
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            log.info("Invalid JWT token: {}", e.getMessage());
-            log.trace("Invalid JWT token trace.", e);
+        return verify(token).isValid();
+    }
+
+    private Claims parseClaims(String token) {
+        return this.jwtParser.parseSignedClaims(token).getPayload();
+    }
+
+    private Authentication toAuthentication(Claims claims, String token) {
+        Object authoritiesClaim = claims.get(AUTHORITIES_KEY);
+        Object compactAuthoritiesClaim = claims.get(COMPACT_AUTHORITIES_KEY);
+
+        Collection<? extends GrantedAuthority> authorities;
+        if (compactAuthoritiesClaim instanceof Number mask) {
+            authorities = this.roleTable.decode(mask.longValue());
+        } else if (authoritiesClaim != null) {
+            authorities = this.authorityRegistry.authoritiesOf(authoritiesClaim.toString());
+        } else {
+            authorities = AuthorityUtils.NO_AUTHORITIES;
         }
-        return false;
+
+        var principal = new JwtUser(claims.getSubject(), authorities);
+
+        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    }
+
+    private JwtVerificationResult rejected(JwtVerificationResult.Failure failure, Exception e) {
+        log.info("Invalid JWT token({}): {}", failure, e.getMessage());
+        log.trace("Invalid JWT token trace.", e);
+        return JwtVerificationResult.invalid(failure);
     }
 
 }
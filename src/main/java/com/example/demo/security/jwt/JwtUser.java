@@ -0,0 +1,52 @@
+package com.example.demo.security.jwt;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+
+/**
+ * The principal of an authenticated token.
+ * <p>
+ * Unlike {@link org.springframework.security.core.userdetails.User}, which copies and sorts the authorities
+ * into a new set, it keeps the shared authorities of the {@link AuthorityRegistry} as they are.
+ */
+public record JwtUser(String username, Collection<? extends GrantedAuthority> authorities) implements UserDetails {
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return this.authorities;
+    }
+
+    // the token is the credential, there is no password
+    @Override
+    public String getPassword() {
+        return "";
+    }
+
+    @Override
+    public String getUsername() {
+        return this.username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+}
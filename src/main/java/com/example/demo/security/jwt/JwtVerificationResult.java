@@ -0,0 +1,39 @@
+package com.example.demo.security.jwt;
+
+import org.springframework.security.core.Authentication;
+
+import java.time.Instant;
+
+/**
+ * The outcome of a single parse-and-verify pass over a JWT token.
+ *
+ * @param authentication the authentication built from the claims, or {@code null} if the token is rejected
+ * @param expiration     the {@code exp} claim of a valid token, or {@code null} if the token is rejected
+ * @param failure        the reason the token is rejected, or {@code null} if the token is valid
+ * @param kid            the key which verified a valid token, or {@code null} if it is unknown
+ */
+public record JwtVerificationResult(Authentication authentication, Instant expiration, Failure failure, String kid) {
+
+    public static JwtVerificationResult valid(Authentication authentication, Instant expiration) {
+        return valid(authentication, expiration, null);
+    }
+
+    public static JwtVerificationResult valid(Authentication authentication, Instant expiration, String kid) {
+        return new JwtVerificationResult(authentication, expiration, null, kid);
+    }
+
+    public static JwtVerificationResult invalid(Failure failure) {
+        return new JwtVerificationResult(null, null, failure, null);
+    }
+
+    public boolean isValid() {
+        return this.failure == null;
+    }
+
+    public enum Failure {
+
+        EXPIRED, INVALID_SIGNATURE, MALFORMED, UNSUPPORTED, INVALID
+
+    }
+
+}
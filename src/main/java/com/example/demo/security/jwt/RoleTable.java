@@ -0,0 +1,66 @@
+package com.example.demo.security.jwt;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes the roles of the compact tokens as a bitmask, the bit {@code i} stands for the role {@code i} of
+ * the table.
+ * <p>
+ * The tokens in flight are decoded with the current table, so roles may only be appended to it, never
+ * reordered or removed.
+ */
+public class RoleTable {
+
+    public static final int MAX_ROLES = Long.SIZE - 1;
+
+    private final List<String> roles;
+
+    // there are as many entries as distinct role combinations in use, which is a handful
+    private final ConcurrentHashMap<Long, List<GrantedAuthority>> authorities = new ConcurrentHashMap<>();
+
+    public RoleTable(List<String> roles) {
+        if (roles.size() > MAX_ROLES) {
+            throw new IllegalArgumentException("At most " + MAX_ROLES + " roles fit in a compact token.");
+        }
+        this.roles = List.copyOf(roles);
+    }
+
+    /**
+     * @return the bitmask of the authorities, or -1 if one of them is not in the table
+     */
+    public long encode(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            int index = this.roles.indexOf(authority.getAuthority());
+            if (index < 0) {
+                return -1;
+            }
+            mask |= 1L << index;
+        }
+        return mask;
+    }
+
+    public List<GrantedAuthority> decode(long mask) {
+        if (mask < 0 || mask >>> this.roles.size() != 0) {
+            throw new IllegalArgumentException("The roles bitmask " + mask + " does not match the role table.");
+        }
+        return this.authorities.computeIfAbsent(mask, this::toAuthorities);
+    }
+
+    private List<GrantedAuthority> toAuthorities(long mask) {
+        var names = new ArrayList<String>();
+        for (int i = 0; i < this.roles.size(); i++) {
+            if ((mask & (1L << i)) != 0) {
+                names.add(this.roles.get(i));
+            }
+        }
+        return List.copyOf(AuthorityUtils.createAuthorityList(names));
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.example.demo.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 digest of a raw token, used as a compact key instead of holding on to the token itself.
+ */
+public final class TokenDigest {
+
+    private final byte[] bytes;
+
+    private final int hashCode;
+
+    private TokenDigest(byte[] bytes) {
+        this.bytes = bytes;
+        this.hashCode = Arrays.hashCode(bytes);
+    }
+
+    public static TokenDigest of(String token) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return new TokenDigest(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is mandatory for every Java platform.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static TokenDigest ofHex(String hex) {
+        return new TokenDigest(HexFormat.of().parseHex(hex));
+    }
+
+    // the first 64 bits of the digest, a uniformly distributed hash of the token
+    public long hash1() {
+        return longAt(0);
+    }
+
+    // the second 64 bits of the digest, independent of hash1
+    public long hash2() {
+        return longAt(8);
+    }
+
+    private long longAt(int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (this.bytes[i] & 0xff);
+        }
+        return value;
+    }
+
+    public String toHex() {
+        return HexFormat.of().formatHex(this.bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof TokenDigest other && Arrays.equals(this.bytes, other.bytes));
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.example.demo.security.jwt;
+
+import com.example.demo.domain.RevokedToken;
+import com.example.demo.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Keeps track of the tokens revoked before their expiration.
+ * <p>
+ * The revoked tokens are stored in MongoDB, and mirrored into an in-memory {@link BloomFilter}, so checking a
+ * token which is definitely not revoked, the common case, costs no I/O. The filter is synced incrementally with
+ * the tokens revoked by the other instances, and rebuilt from scratch from time to time to drop the expired ones.
+ */
+@Component
+@Slf4j
+public class TokenRevocationService {
+
+    // tolerates the clock skew between the instances when syncing the recently revoked tokens
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(5);
+
+    private final JwtTokenProvider tokenProvider;
+
+    private final RevokedTokenRepository revokedTokens;
+
+    private final JwtProperties.Revocation properties;
+
+    private final Counter storeLookups;
+
+    // null until the filter is built the first time, every check goes to the store meanwhile
+    private volatile BloomFilter bloomFilter;
+
+    private volatile Instant lastSyncedAt;
+
+    public TokenRevocationService(JwtTokenProvider tokenProvider,
+                                  RevokedTokenRepository revokedTokens,
+                                  JwtProperties jwtProperties,
+                                  MeterRegistry meterRegistry) {
+        this.tokenProvider = tokenProvider;
+        this.revokedTokens = revokedTokens;
+        this.properties = jwtProperties.getRevocation();
+        this.storeLookups = meterRegistry.counter("jwt.revocation.store.lookups");
+        Gauge.builder("jwt.revocation.bloom.false-positive-rate", this,
+                        it -> it.bloomFilter == null ? 1.0 : it.bloomFilter.expectedFalsePositiveProbability())
+                .description("The expected false positive rate of the revoked tokens bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("jwt.revocation.bloom.insertions", this,
+                        it -> it.bloomFilter == null ? 0 : it.bloomFilter.insertions())
+                .register(meterRegistry);
+    }
+
+    public Mono<Boolean> isRevoked(TokenDigest digest) {
+        var filter = this.bloomFilter;
+        if (filter != null && !filter.mightContain(digest)) {
+            return Mono.just(Boolean.FALSE);
+        }
+        this.storeLookups.increment();
+        return this.revokedTokens.existsById(digest.toHex());
+    }
+
+    /**
+     * Revokes the token if it is still valid, an invalid token is simply ignored.
+     */
+    public Mono<Void> revoke(String token) {
+        var result = this.tokenProvider.verify(token);
+        if (!result.isValid()) {
+            return Mono.empty();
+        }
+        var digest = TokenDigest.of(token);
+        var revokedToken = RevokedToken.builder()
+                .id(digest.toHex())
+                .username(result.authentication().getName())
+                .revokedAt(Instant.now())
+                .expiresAt(result.expiration())
+                .build();
+        return this.revokedTokens.save(revokedToken)
+                .doOnSuccess(saved -> {
+                    var filter = this.bloomFilter;
+                    if (filter != null) {
+                        filter.put(digest);
+                    }
+                })
+                .then();
+    }
+
+    @EventListener(value = ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-in-ms:3600000}",
+            initialDelayString = "${jwt.revocation.rebuild-interval-in-ms:3600000}")
+    public void rebuild() {
+        var startedAt = Instant.now();
+        var filter = new BloomFilter(this.properties.getExpectedInsertions(),
+                this.properties.getFalsePositiveProbability());
+        this.revokedTokens.findByExpiresAtAfter(startedAt)
+                .doOnNext(revoked -> filter.put(TokenDigest.ofHex(revoked.getId())))
+                .count()
+                .subscribe(
+                        count -> {
+                            this.bloomFilter = filter;
+                            this.lastSyncedAt = startedAt;
+                            log.debug("rebuilt the revoked tokens bloom filter with {} tokens", count);
+                            // the tokens revoked while the filter was read are missing from it, add them at once
+                            // rather than at the next sync
+                            sync();
+                        },
+                        err -> log.error("error when rebuilding the revoked tokens bloom filter: " + err)
+                );
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-in-ms:10000}")
+    public void sync() {
+        var filter = this.bloomFilter;
+        var since = this.lastSyncedAt;
+        if (filter == null || since == null) {
+            return;
+        }
+        var startedAt = Instant.now();
+        this.revokedTokens.findByRevokedAtAfter(since.minus(SYNC_OVERLAP))
+                .doOnNext(revoked -> filter.put(TokenDigest.ofHex(revoked.getId())))
+                .count()
+                .subscribe(
+                        count -> this.lastSyncedAt = startedAt,
+                        err -> log.error("error when syncing the revoked tokens bloom filter: " + err)
+                );
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.example.demo.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A bounded cache of successfully verified tokens, keyed by the {@link TokenDigest} of the token.
+ * <p>
+ * An entry never outlives the {@code exp} claim of its token, and a hit skips parsing, signature
+ * verification and building the authorities of the {@link org.springframework.security.core.Authentication}.
+ * A hit is still checked against the key ring, the tokens signed by a key retired since are verified again,
+ * and rejected.
+ * <p>
+ * An {@link org.springframework.security.core.Authentication} is mutable, so every caller gets its own one, built
+ * from the immutable principal and authorities of the cached entry.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    public static final String CACHE_NAME = "jwt.verified-tokens";
+
+    private final Cache<TokenDigest, JwtVerificationResult> cache;
+
+    private final boolean enabled;
+
+    public VerifiedTokenCache(JwtProperties jwtProperties, MeterRegistry meterRegistry) {
+        var properties = jwtProperties.getCache();
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new UntilTokenExpiration())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, CACHE_NAME);
+    }
+
+    public JwtVerificationResult get(TokenDigest key, String token,
+                                     Function<String, JwtVerificationResult> verifier,
+                                     Predicate<JwtVerificationResult> accepted) {
+        if (!this.enabled) {
+            return verifier.apply(token);
+        }
+        var cached = this.cache.getIfPresent(key);
+        if (cached != null) {
+            if (accepted.test(cached)) {
+                return withNewAuthentication(cached);
+            }
+            this.cache.invalidate(key);
+        }
+        var result = verifier.apply(token);
+        // only keep valid tokens, rejected tokens are cheap to reject again and would just pollute the cache.
+        if (result.isValid()) {
+            this.cache.put(key, result);
+            return withNewAuthentication(result);
+        }
+        return result;
+    }
+
+    private static JwtVerificationResult withNewAuthentication(JwtVerificationResult result) {
+        var authentication = result.authentication();
+        return JwtVerificationResult.valid(
+                UsernamePasswordAuthenticationToken.authenticated(authentication.getPrincipal(),
+                        authentication.getCredentials(), authentication.getAuthorities()),
+                result.expiration(), result.kid());
+    }
+
+    private static final class UntilTokenExpiration implements Expiry<TokenDigest, JwtVerificationResult> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, JwtVerificationResult value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.expiration()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, JwtVerificationResult value, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, JwtVerificationResult value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
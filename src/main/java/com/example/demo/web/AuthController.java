@@ -1,22 +1,32 @@
 package com.example.demo.web;
 
+import com.example.demo.security.RefreshTokenService;
+import com.example.demo.security.jwt.JwtTokenAuthenticationFilter;
 import com.example.demo.security.jwt.JwtTokenProvider;
+import com.example.demo.security.jwt.TokenRevocationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
+import java.util.function.Function;
 import jakarta.validation.Valid;
 
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+
 /**
  * @author hantsy
  */
@@ -30,6 +40,10 @@ public class AuthController {
 
     private final ReactiveAuthenticationManager authenticationManager;
 
+    private final TokenRevocationService revocations;
+
+    private final RefreshTokenService refreshTokens;
+
     @PostMapping("/login")
     public Mono<ResponseEntity> login(
             @Valid @RequestBody Mono<AuthenticationRequest> authRequest) {
@@ -38,14 +52,57 @@ public class AuthController {
                 .flatMap(login -> this.authenticationManager
                         .authenticate(new UsernamePasswordAuthenticationToken(
                                 login.username(), login.password()))
-                        .map(this.tokenProvider::createToken))
-                .map(jwt -> {
-                    HttpHeaders httpHeaders = new HttpHeaders();
-                    httpHeaders.add(HttpHeaders.AUTHORIZATION, "Bearer " + jwt);
-                    var tokenBody = Map.of("access_token", jwt);
-                    return new ResponseEntity<>(tokenBody, httpHeaders, HttpStatus.OK);
-                });
+                        .flatMap(authentication -> this.refreshTokens.issue(authentication.getName())
+                                .map(refreshToken -> toResponse(authentication, refreshToken))));
+
+    }
+
+    // exchanges a refresh token for a new pair of tokens, no password is verified
+    @PostMapping("/refresh")
+    public Mono<ResponseEntity> refresh(
+            @Valid @RequestBody Mono<RefreshTokenRequest> refreshRequest) {
+
+        return refreshRequest
+                .flatMap(refresh -> this.refreshTokens.rotate(refresh.refreshToken()))
+                .map(rotation -> toResponse(rotation.authentication(), rotation.refreshToken()));
+
+    }
+
+    private ResponseEntity toResponse(Authentication authentication, String refreshToken) {
+        String jwt = this.tokenProvider.createToken(authentication);
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(HttpHeaders.AUTHORIZATION, "Bearer " + jwt);
+        var tokenBody = Map.of("access_token", jwt, "refresh_token", refreshToken);
+        return new ResponseEntity<>(tokenBody, httpHeaders, HttpStatus.OK);
+    }
+
+    // ends the session of the refresh token in the body, or all the sessions of the user without one
+    @PostMapping("/logout")
+    @ResponseStatus(NO_CONTENT)
+    public Mono<Void> logout(ServerWebExchange exchange,
+                             @RequestBody(required = false) Mono<RefreshTokenRequest> refreshRequest) {
+        String token = JwtTokenAuthenticationFilter.resolveToken(exchange.getRequest());
+        Mono<Void> refreshTokenRevocation = refreshRequest
+                .map(RefreshTokenRequest::refreshToken)
+                .filter(StringUtils::hasText)
+                .map(this.refreshTokens::revoke)
+                .switchIfEmpty(Mono.fromSupplier(() -> revokeAllRefreshTokens(token)))
+                .flatMap(Function.identity());
+        if (!StringUtils.hasText(token)) {
+            return refreshTokenRevocation;
+        }
+        return refreshTokenRevocation.then(this.revocations.revoke(token));
+    }
 
+    private Mono<Void> revokeAllRefreshTokens(String token) {
+        if (!StringUtils.hasText(token)) {
+            return Mono.empty();
+        }
+        var result = this.tokenProvider.verify(token);
+        if (!result.isValid()) {
+            return Mono.empty();
+        }
+        return this.refreshTokens.revokeAll(result.authentication().getName());
     }
 
 }
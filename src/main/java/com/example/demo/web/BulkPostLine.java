@@ -0,0 +1,17 @@
+package com.example.demo.web;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+import java.util.List;
+
+// a line of a bulk import, the id is optional, a line sent again with its id is then rejected as a duplicate
+public record BulkPostLine(
+        String id,
+        @NotBlank String title,
+        @NotBlank String content,
+        @Pattern(regexp = "DRAFT|PUBLISHED") String status,
+        List<@Valid CommentForm> comments
+) {
+}
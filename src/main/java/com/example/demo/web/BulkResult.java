@@ -0,0 +1,33 @@
+package com.example.demo.web;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// the result of a line of a bulk import, the lines are numbered from 1
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkResult(long line, Status status, String id, Integer comments, String error) {
+
+    public static BulkResult created(long line, String id, int comments) {
+        return new BulkResult(line, Status.CREATED, id, comments, null);
+    }
+
+    public static BulkResult invalid(long line, String error) {
+        return new BulkResult(line, Status.INVALID, null, null, error);
+    }
+
+    public static BulkResult failed(long line, String id, String error) {
+        return new BulkResult(line, Status.FAILED, id, null, error);
+    }
+
+    public enum Status {
+
+        // the line is not a valid post, it is not sent to the database
+        INVALID,
+
+        // the post is refused by the database, a duplicated id for example
+        FAILED,
+
+        CREATED
+
+    }
+
+}
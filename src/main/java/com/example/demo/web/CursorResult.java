@@ -0,0 +1,9 @@
+package com.example.demo.web;
+
+import java.util.List;
+
+/**
+ * A page of a keyset pagination, {@code next} is the cursor of the following page, or null on the last page.
+ */
+public record CursorResult<T>(List<T> data, String next) {
+}
@@ -0,0 +1,9 @@
+package com.example.demo.web;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Cursor:" + cursor + " is invalid.");
+    }
+
+}
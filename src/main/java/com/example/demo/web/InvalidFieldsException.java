@@ -0,0 +1,9 @@
+package com.example.demo.web;
+
+public class InvalidFieldsException extends RuntimeException {
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+
+}
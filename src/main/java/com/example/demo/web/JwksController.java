@@ -0,0 +1,34 @@
+package com.example.demo.web;
+
+import com.example.demo.security.jwt.JwtProperties;
+import com.example.demo.security.jwt.JwtTokenProvider;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Publishes the public keys of the ES256/EdDSA key ring, so other services can verify the tokens locally.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtTokenProvider tokenProvider;
+
+    private final JwtProperties jwtProperties;
+
+    @GetMapping("/.well-known/jwks.json")
+    public Mono<ResponseEntity<Map<String, Object>>> jwks() {
+        var maxAge = Duration.ofMillis(this.jwtProperties.getJwksMaxAgeInMs());
+        return Mono.just(ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+                .body(Map.of("keys", this.tokenProvider.getPublicJwks())));
+    }
+
+}
@@ -1,6 +1,17 @@
 package com.example.demo.web;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
-public record PaginatedResult<T>(List<T> data, Long count) {
+/**
+ * A page of an offset pagination, {@code count} is left out when the client asked for no count.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PaginatedResult<T>(List<T> data, Long count, Boolean hasNext) {
+
+    public PaginatedResult(List<T> data, Long count) {
+        this(data, count, null);
+    }
+
 }
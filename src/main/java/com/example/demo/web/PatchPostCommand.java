@@ -0,0 +1,11 @@
+package com.example.demo.web;
+
+import jakarta.validation.constraints.Pattern;
+
+// the fields left out are not changed, those given must not be blank
+public record PatchPostCommand(
+        @Pattern(regexp = "(?s).*\\S.*", message = "must not be blank") String title,
+        @Pattern(regexp = "(?s).*\\S.*", message = "must not be blank") String content,
+        @Pattern(regexp = "DRAFT|PUBLISHED") String status
+) {
+}
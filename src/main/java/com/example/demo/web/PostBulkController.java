@@ -0,0 +1,116 @@
+package com.example.demo.web;
+
+import com.example.demo.domain.Post;
+import com.example.demo.repository.ImportedPost;
+import com.example.demo.repository.PostBulkWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Imports posts from a stream of JSON lines, a post with its comments per line, and streams back a result per line.
+ * <p>
+ * The lines are read as the batches are written, a batch at a time, the upload is never held in memory as a whole.
+ */
+@RestController
+@RequiredArgsConstructor
+public class PostBulkController {
+
+    private final PostBulkWriter postBulkWriter;
+
+    private final PostProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    @PostMapping(value = "/posts:bulk",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkResult> bulk(@RequestBody Flux<String> lines) {
+        int batchSize = Math.max(1, this.properties.getBulk().getBatchSize());
+        return lines
+                .index((index, line) -> new Line(index + 1, line))
+                .filter(line -> StringUtils.hasText(line.text()))
+                .map(this::parse)
+                .buffer(batchSize)
+                // a single batch is written at once, the body is only read further once it is written
+                .concatMap(this::write, 0)
+                .doFinally(signal -> this.postBulkWriter.refresh());
+    }
+
+    private Parsed parse(Line line) {
+        BulkPostLine data;
+        try {
+            data = this.objectMapper.readValue(line.text(), BulkPostLine.class);
+        } catch (JsonProcessingException e) {
+            return Parsed.invalid(line.number(), "malformed JSON: " + e.getOriginalMessage());
+        }
+        if (data == null) {
+            return Parsed.invalid(line.number(), "not a post");
+        }
+
+        var violations = this.validator.validate(data);
+        if (!violations.isEmpty()) {
+            return Parsed.invalid(line.number(), violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+
+        var post = Post.builder()
+                .id(StringUtils.hasText(data.id()) ? data.id() : null)
+                .title(data.title())
+                .content(data.content())
+                .status(data.status() == null ? Post.Status.DRAFT : Post.Status.valueOf(data.status()))
+                .build();
+        var comments = data.comments() == null
+                ? List.<String>of()
+                : data.comments().stream().map(CommentForm::content).toList();
+        return new Parsed(line.number(), new ImportedPost(post, comments), null);
+    }
+
+    private Flux<BulkResult> write(List<Parsed> batch) {
+        var valid = batch.stream().filter(parsed -> parsed.post() != null).map(Parsed::post).toList();
+        return this.postBulkWriter.insert(valid)
+                .flatMapIterable(errors -> {
+                    var results = new ArrayList<BulkResult>(batch.size());
+                    int index = 0;
+                    for (Parsed parsed : batch) {
+                        if (parsed.post() == null) {
+                            results.add(BulkResult.invalid(parsed.line(), parsed.error()));
+                            continue;
+                        }
+                        var id = parsed.post().post().getId();
+                        var error = errors.get(index++);
+                        results.add(error == null
+                                ? BulkResult.created(parsed.line(), id, parsed.post().comments().size())
+                                : BulkResult.failed(parsed.line(), id, error));
+                    }
+                    return results;
+                });
+    }
+
+    private record Line(long number, String text) {
+    }
+
+    private record Parsed(long line, ImportedPost post, String error) {
+
+        static Parsed invalid(long line, String error) {
+            return new Parsed(line, null, error);
+        }
+
+    }
+
+}
@@ -4,20 +4,39 @@ import com.example.demo.domain.Comment;
 import com.example.demo.domain.Post;
 import com.example.demo.domain.PostId;
 import com.example.demo.domain.PostNotFoundException;
+import com.example.demo.repository.CommentPurge;
 import com.example.demo.repository.CommentRepository;
+import com.example.demo.repository.PostCache;
+import com.example.demo.repository.PostCounts;
+import com.example.demo.repository.PostFields;
 import com.example.demo.repository.PostRepository;
+import com.example.demo.repository.PostTitle;
+import com.example.demo.repository.PostTitleIndex;
+import com.example.demo.repository.PostUpdate;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Objects;
 
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
 import static org.springframework.http.ResponseEntity.created;
 
@@ -27,21 +46,137 @@ import static org.springframework.http.ResponseEntity.created;
 @Validated
 public class PostController {
 
+    private static final String COUNT_NONE = "none";
+
+    // what the preconditions of a read are checked against
+    private static final PostFields VALIDATORS = PostFields.of(List.of("version", "lastModifiedDate"), 0);
+
     private final PostRepository posts;
 
     private final CommentRepository comments;
 
+    private final PostCounts postCounts;
+
+    private final PostTitleIndex postTitleIndex;
+
+    private final PostCache postCache;
+
+    private final CommentPurge commentPurge;
+
+    private final PostProperties properties;
+
+    // count=none skips counting, the page then only tells if there is a next page.
+    // q is searched in the text index when posts.search.mode=TEXT, the most relevant posts first.
+    // fields selects the fields of the posts, a summary with an excerpt of the content by default.
     @GetMapping("")
-    public Mono<PaginatedResult> all(@RequestParam(value = "q", required = false, defaultValue = "") String q,
-                                     @RequestParam(value = "page", defaultValue = "0") int page,
-                                     @RequestParam(value = "size", defaultValue = "10") int size) {
-        Sort sort = Sort.by(Sort.Direction.DESC, "createdDate");
+    public Mono<ResponseEntity<PaginatedResult<Post>>> all(
+            @RequestParam(value = "q", required = false, defaultValue = "") String q,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "count", defaultValue = "exact") String count,
+            @RequestParam(value = "fields", required = false) List<String> fields,
+            ServerWebExchange exchange) {
+        return page(q, page, size, count, fields)
+                .map(result -> tagged(exchange, result, result.data(),
+                        result.count() + ":" + result.hasNext()));
+    }
 
-        return this.posts.findByTitleContains(q, PageRequest.of(page, size, sort))
+    private Mono<PaginatedResult<Post>> page(String q, int page, int size, String count, List<String> fields) {
+        int pageSize = pageSize(size);
+        long offset = (long) page * pageSize;
+        var projection = listFields(fields);
+        var search = this.properties.getSearch();
+        boolean textSearch = StringUtils.hasText(q) && search.getMode() == PostProperties.SearchMode.TEXT;
+
+        if (COUNT_NONE.equalsIgnoreCase(count)) {
+            // fetches one more post to know if there is a next page
+            var found = textSearch
+                    ? this.posts.findByText(q, search.getLanguage(), offset, pageSize + 1, projection)
+                    : this.posts.findByOffset(q, offset, pageSize + 1, projection);
+            return found
+                    .collectList()
+                    .map(data -> data.size() > pageSize
+                            ? new PaginatedResult<>(data.subList(0, pageSize), null, true)
+                            : new PaginatedResult<>(data, null, false)
+                    );
+        }
+
+        var found = textSearch
+                ? this.posts.findByText(q, search.getLanguage(), offset, pageSize, projection)
+                : this.posts.findByOffset(q, offset, pageSize, projection);
+        var counted = textSearch
+                ? this.postCounts.countByText(q, search.getLanguage())
+                : this.postCounts.countByTitleContains(q);
+        return found
                 .collectList()
-                .zipWith(this.posts.countByTitleContains(q),
-                        PaginatedResult::new
-                );
+                .zipWith(counted, (data, total) -> new PaginatedResult<>(data, total, offset + data.size() < total));
+    }
+
+    // keyset pagination, an empty cursor starts from the newest post
+    @GetMapping(value = "", params = "cursor")
+    public Mono<ResponseEntity<CursorResult<Post>>> allByCursor(
+            @RequestParam(value = "q", required = false, defaultValue = "") String q,
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "fields", required = false) List<String> fields,
+            ServerWebExchange exchange) {
+        return pageByCursor(q, cursor, size, fields)
+                .map(result -> tagged(exchange, result, result.data(), result.next()));
+    }
+
+    private Mono<CursorResult<Post>> pageByCursor(String q, String cursor, int size, List<String> fields) {
+        var after = cursor.isEmpty() ? new PostCursor(null, null) : PostCursor.decode(cursor);
+        int limit = pageSize(size);
+        // the next cursor is made of the last post
+        var projection = listFields(fields).with("createdDate");
+
+        // fetches one more post to know if there is a next page
+        return this.posts.findByKeyset(q, after.createdDate(), after.id(), limit + 1, projection)
+                .collectList()
+                .map(data -> {
+                    if (data.size() <= limit) {
+                        return new CursorResult<>(data, null);
+                    }
+                    var page = data.subList(0, limit);
+                    var last = page.get(limit - 1);
+                    return new CursorResult<>(page, new PostCursor(last.getCreatedDate(), last.getId()).encode());
+                });
+    }
+
+    // a page is tagged with the persisted state of its posts, the same on every instance, the result handler
+    // answers a matching If-None-Match with 304. the tag is weak, the count of a page may be an estimate.
+    private static <T> ResponseEntity<T> tagged(ServerWebExchange exchange, T page, List<Post> posts, String extra) {
+        var state = new StringBuilder(Objects.toString(exchange.getRequest().getURI().getRawQuery(), ""));
+        for (Post post : posts) {
+            state.append('|').append(post.getId())
+                    .append(':').append(post.getVersion())
+                    .append(':').append(post.getLastModifiedDate());
+        }
+        state.append('|').append(extra);
+        var hash = DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8));
+        return ResponseEntity.ok().eTag("W/\"" + hash + "\"").body(page);
+    }
+
+    // the tags of the pages are made of the versions of the posts, they are read whatever the fields
+    private PostFields listFields(List<String> fields) {
+        var projection = fields == null ? PostFields.summary(this.properties.getExcerptLength()) : fields(fields);
+        return withValidators(projection);
+    }
+
+    private static PostFields withValidators(PostFields projection) {
+        return projection.with("version").with("lastModifiedDate");
+    }
+
+    private PostFields fields(List<String> fields) {
+        try {
+            return PostFields.of(fields, this.properties.getExcerptLength());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFieldsException(e.getMessage());
+        }
+    }
+
+    private int pageSize(int size) {
+        return Math.max(1, Math.min(size, this.properties.getMaxPageSize()));
     }
 
     @PostMapping("")
@@ -57,49 +192,192 @@ public class PostController {
                 );
     }
 
+    // served from memory, for the autocomplete of the editors
+    @GetMapping("/suggest")
+    public Mono<List<PostTitle>> suggest(@RequestParam(value = "prefix") String prefix,
+                                         @RequestParam(value = "size", defaultValue = "10") int size) {
+        return Mono.fromSupplier(() -> this.postTitleIndex.suggest(prefix, pageSize(size)));
+    }
+
+    // the whole collection as a stream, read from the cursor as fast as the client reads the response.
+    // after resumes from the last post read, in the order of the ids.
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Post> export(@RequestParam(value = "after", required = false) String after) {
+        return this.posts.findAllAfter(exportCursorOf(after), this.properties.getExport().getBatchSize());
+    }
+
+    // the id of an event is the id of its post, a reconnecting client resumes after it with Last-Event-ID
+    @GetMapping(value = "/export", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Post>> exportEvents(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        var from = lastEventId != null ? lastEventId : after;
+        return this.posts.findAllAfter(exportCursorOf(from), this.properties.getExport().getBatchSize())
+                .map(post -> ServerSentEvent.builder(post).id(post.getId()).build());
+    }
+
+    // the ids of the posts are ObjectIds, a string would never compare greater than them
+    private static ObjectId exportCursorOf(String id) {
+        if (id == null) {
+            return null;
+        }
+        if (!ObjectId.isValid(id)) {
+            throw new InvalidCursorException(id);
+        }
+        return new ObjectId(id);
+    }
+
+    // the whole post is served from the cache, the result handler checks the preconditions against it.
+    // otherwise a conditional request is first checked against the validators alone, the post is only read when it
+    // is sent, and an unconditional one reads the post at once.
     @GetMapping("/{id}")
-    public Mono<Post> get(@PathVariable("id") String id) {
-        return this.posts.findById(id)
-                .switchIfEmpty(Mono.error(new PostNotFoundException(id)));
+    public Mono<ResponseEntity<Post>> get(@PathVariable("id") String id,
+                                          @RequestParam(value = "fields", required = false) List<String> fields,
+                                          ServerWebExchange exchange) {
+        var projection = fields == null ? PostFields.ALL : fields(fields);
+        if (projection.isAll() && this.postCache.isEnabled()) {
+            return this.postCache.findById(id)
+                    .switchIfEmpty(Mono.error(new PostNotFoundException(id)))
+                    .map(post -> validated(post, projection));
+        }
+        if (!isConditional(exchange)) {
+            return read(id, projection);
+        }
+        return this.posts.findById(id, VALIDATORS)
+                .switchIfEmpty(Mono.error(new PostNotFoundException(id)))
+                .flatMap(modified -> {
+                    var eTag = eTagOf(modified, projection);
+                    if (eTag != null && exchange.checkNotModified(eTag, lastModifiedOf(modified))) {
+                        return Mono.just(ResponseEntity.status(NOT_MODIFIED).<Post>build());
+                    }
+                    return read(id, projection);
+                });
     }
 
-    @PutMapping("/{id}")
-    @ResponseStatus(NO_CONTENT)
-    public Mono<Void> update(@PathVariable("id") String id,
-                             @RequestBody @Valid UpdatePostCommand post) {
-        return this.posts.findById(id)
+    private Mono<ResponseEntity<Post>> read(String id, PostFields projection) {
+        var found = projection.isAll()
+                ? this.posts.findById(id)
+                : this.posts.findById(id, withValidators(projection));
+        return found
                 .switchIfEmpty(Mono.error(new PostNotFoundException(id)))
-                .map(p -> {
-                    p.setTitle(post.title());
-                    p.setContent(post.content());
+                .map(post -> validated(post, projection));
+    }
+
+    private static boolean isConditional(ServerWebExchange exchange) {
+        var headers = exchange.getRequest().getHeaders();
+        return !headers.getIfNoneMatch().isEmpty() || headers.getIfModifiedSince() != -1;
+    }
+
+    private static ResponseEntity<Post> validated(Post post, PostFields projection) {
+        var response = ResponseEntity.ok();
+        var eTag = eTagOf(post, projection);
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        if (post.getLastModifiedDate() != null) {
+            response.lastModified(lastModifiedOf(post));
+        }
+        return response.body(post);
+    }
 
-                    return p;
-                })
-                .flatMap(this.posts::save)
-                .then();
+    // a strong tag of the representation, the same post with other fields is another representation.
+    // the version tells the changes apart, the modified date stands for it for the posts saved before versioning
+    private static String eTagOf(Post post, PostFields projection) {
+        String eTag;
+        if (post.getVersion() != null) {
+            eTag = post.getId() + "-v" + post.getVersion();
+        } else if (post.getLastModifiedDate() != null) {
+            eTag = post.getId() + "-" + lastModifiedOf(post).toEpochMilli();
+        } else {
+            return null;
+        }
+        if (projection.isAll()) {
+            return eTag;
+        }
+        return eTag + "-" + Integer.toHexString(projection.include().stream().sorted().toList().hashCode());
+    }
+
+    private static Instant lastModifiedOf(Post post) {
+        if (post.getLastModifiedDate() == null) {
+            return Instant.MIN;
+        }
+        return post.getLastModifiedDate().atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    // If-Match is required, it takes the ETag of the post and the update is then only applied to that version,
+    // "*" applies it to any version. A missing If-Match answers 428, so two clients can never silently overwrite
+    // each other.
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Void>> update(
+            @PathVariable("id") String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid UpdatePostCommand post) {
+        return applyUpdate(id, ifMatch, new PostUpdate(post.title(), post.content(), null));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Void>> patch(
+            @PathVariable("id") String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid PatchPostCommand post) {
+        var status = post.status() == null ? null : Post.Status.valueOf(post.status());
+        var changes = new PostUpdate(post.title(), post.content(), status);
+        // nothing to change, the version must not be bumped
+        if (changes.isEmpty()) {
+            return Mono.error(new ServerWebInputException("at least one of title, content and status is required"));
+        }
+        return applyUpdate(id, ifMatch, changes);
     }
 
     @PutMapping("/{id}/status")
-    @ResponseStatus(NO_CONTENT)
-    public Mono<Void> updateStatus(@PathVariable("id") String id,
-                                   @RequestBody @Valid UpdateStatusRequest status) {
-        return this.posts.findById(id)
-                .switchIfEmpty(Mono.error(new PostNotFoundException(id)))
-                .map(p -> {
-                    // TODO: check if the current user is author it has ADMIN role.
-                    p.setStatus(Post.Status.valueOf(status.status()));
-                    return p;
-                })
-                .flatMap(this.posts::save)
-                .then();
+    public Mono<ResponseEntity<Void>> updateStatus(
+            @PathVariable("id") String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid UpdateStatusRequest status) {
+        // TODO: check if the current user is author it has ADMIN role.
+        return applyUpdate(id, ifMatch, new PostUpdate(null, null, Post.Status.valueOf(status.status())));
+    }
+
+    // a single findAndModify, nothing is updated when the post is missing or has another version, the precondition
+    // then fails whatever the reason
+    private Mono<ResponseEntity<Void>> applyUpdate(String id, String ifMatch, PostUpdate changes) {
+        if (ifMatch == null) {
+            return Mono.error(new PreconditionRequiredException(id));
+        }
+        var version = versionOf(id, ifMatch);
+        return this.posts.update(id, version, changes)
+                .map(updated -> ResponseEntity.noContent().eTag(eTagOf(updated, PostFields.ALL)).<Void>build())
+                .switchIfEmpty(Mono.error(() -> new PreconditionFailedException(id)));
     }
 
+    // the version in the ETag of the post, null when any version matches
+    private static Long versionOf(String id, String ifMatch) {
+        if (ifMatch.trim().equals("*")) {
+            return null;
+        }
+        // a strong ETag of this post, for any fields: "<id>-v<version>[-<fields>]"
+        var prefix = "\"" + id + "-v";
+        var eTag = ifMatch.trim();
+        if (!eTag.startsWith(prefix) || !eTag.endsWith("\"")) {
+            throw new PreconditionFailedException(id);
+        }
+        var version = eTag.substring(prefix.length(), eTag.length() - 1);
+        int end = version.indexOf('-');
+        try {
+            return Long.parseLong(end < 0 ? version : version.substring(0, end));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException(id);
+        }
+    }
+
+    // the comments of the post are purged with it, or after it when the purge is async
     @DeleteMapping("/{id}")
     @ResponseStatus(NO_CONTENT)
     public Mono<Void> delete(@PathVariable("id") String id) {
-        return this.posts.findById(id)
-                .switchIfEmpty(Mono.error(new PostNotFoundException(id)))
-                .flatMap(this.posts::delete);
+        return this.posts.removeById(id)
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.<Void>error(new PostNotFoundException(id))
+                        : this.commentPurge.purge(id));
     }
 
     @GetMapping("/{id}/comments")
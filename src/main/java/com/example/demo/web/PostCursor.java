@@ -0,0 +1,33 @@
+package com.example.demo.web;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * The position of a post in the newest first order, encoded as an opaque URL safe string for the clients.
+ */
+public record PostCursor(LocalDateTime createdDate, String id) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        var value = this.createdDate.toString() + SEPARATOR + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PostCursor decode(String cursor) {
+        try {
+            var value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0 || separator == value.length() - 1) {
+                throw new InvalidCursorException(cursor);
+            }
+            return new PostCursor(LocalDateTime.parse(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+}
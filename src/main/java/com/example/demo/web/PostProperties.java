@@ -0,0 +1,58 @@
+package com.example.demo.web;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "posts")
+@Data
+public class PostProperties {
+
+    // the larger page sizes requested by the clients are capped to it
+    private int maxPageSize = 100;
+
+    // the length of the excerpt of the content in the summaries of the list views
+    private int excerptLength = 200;
+
+    private Search search = new Search();
+
+    private Bulk bulk = new Bulk();
+
+    private Export export = new Export();
+
+    public enum SearchMode {
+
+        // a case sensitive match of q in the title, scans the whole collection
+        REGEX,
+
+        // matches the words of q in the text index over title and content, ordered by relevance
+        TEXT
+
+    }
+
+    @Data
+    public static class Search {
+
+        private SearchMode mode = SearchMode.REGEX;
+
+        // the language of the stemming and the stop words applied to q in the text mode
+        private String language = "english";
+
+    }
+
+    @Data
+    public static class Bulk {
+
+        // the posts inserted per round trip, and so the lines read ahead of the database
+        private int batchSize = 1000;
+
+    }
+
+    @Data
+    public static class Export {
+
+        // the posts fetched per round trip of the cursor, as the client reads them
+        private int batchSize = 500;
+
+    }
+
+}
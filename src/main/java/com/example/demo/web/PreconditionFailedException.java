@@ -0,0 +1,9 @@
+package com.example.demo.web;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String id) {
+        super("Post:" + id + " does not match the precondition, it has been modified.");
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.example.demo.web;
+
+public class PreconditionRequiredException extends RuntimeException {
+
+    public PreconditionRequiredException(String id) {
+        super("Post:" + id + " can only be updated with the If-Match header of its ETag.");
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.example.demo.web;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenRequest(
+        @JsonProperty("refresh_token") @NotBlank String refreshToken
+) {
+}
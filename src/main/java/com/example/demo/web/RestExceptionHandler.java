@@ -1,14 +1,18 @@
 package com.example.demo.web;
 
 import com.example.demo.domain.PostNotFoundException;
+import com.example.demo.security.InvalidRefreshTokenException;
+import com.example.demo.security.ServiceOverloadedException;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.reactive.result.method.annotation.ResponseEntityExceptionHandler;
@@ -33,4 +37,56 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return problemDetail;
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ProblemDetail handlePreconditionFailedException(PreconditionFailedException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.PRECONDITION_FAILED, ex.getMessage());
+        problemDetail.setTitle("Precondition Failed");
+        problemDetail.setType(URI.create("http://example.com/api/errors/precondition_failed"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(PreconditionRequiredException.class)
+    public ProblemDetail handlePreconditionRequiredException(PreconditionRequiredException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.PRECONDITION_REQUIRED, ex.getMessage());
+        problemDetail.setTitle("Precondition Required");
+        problemDetail.setType(URI.create("http://example.com/api/errors/precondition_required"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ProblemDetail handleInvalidCursorException(InvalidCursorException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+        problemDetail.setTitle("Invalid Cursor");
+        problemDetail.setType(URI.create("http://example.com/api/errors/invalid_cursor"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ProblemDetail handleInvalidFieldsException(InvalidFieldsException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+        problemDetail.setTitle("Invalid Fields");
+        problemDetail.setType(URI.create("http://example.com/api/errors/invalid_fields"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    public ProblemDetail handleInvalidRefreshTokenException(InvalidRefreshTokenException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        problemDetail.setTitle("Invalid Refresh Token");
+        problemDetail.setType(URI.create("http://example.com/api/errors/invalid_refresh_token"));
+        return problemDetail;
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ProblemDetail> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        problemDetail.setTitle("Service Overloaded");
+        problemDetail.setType(URI.create("http://example.com/api/errors/service_overloaded"));
+        // Retry-After is in seconds, round up to not invite the clients back too early
+        long retryAfterSeconds = (ex.getRetryAfter().toMillis() + 999) / 1000;
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(problemDetail);
+    }
+
 }
@@ -1,7 +1,7 @@
 package com.example.demo.web;
 
 import com.example.demo.domain.User;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.repository.UserCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -15,7 +15,7 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class UserController {
 
-    private final UserRepository users;
+    private final UserCache users;
 
     @GetMapping("/users/{username}")
     public Mono<User> get(@PathVariable() String username) {
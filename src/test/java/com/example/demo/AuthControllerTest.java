@@ -1,6 +1,11 @@
 package com.example.demo;
 
+import com.example.demo.security.InvalidRefreshTokenException;
+import com.example.demo.security.RefreshTokenService;
+import com.example.demo.security.ServiceOverloadedException;
 import com.example.demo.security.jwt.JwtTokenProvider;
+import com.example.demo.security.jwt.JwtVerificationResult;
+import com.example.demo.security.jwt.TokenRevocationService;
 import com.example.demo.web.AuthController;
 import com.example.demo.web.AuthenticationRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +16,7 @@ import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDeta
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -19,9 +25,15 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +53,12 @@ class AuthControllerTest {
     @MockBean
     private ReactiveAuthenticationManager authenticationManager;
 
+    @MockBean
+    private TokenRevocationService revocations;
+
+    @MockBean
+    private RefreshTokenService refreshTokens;
+
     @Autowired
     private WebTestClient client;
 
@@ -56,6 +74,7 @@ class AuthControllerTest {
         when(this.authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(Mono.just(usernamePasswordAuthenticationToken));
         when(this.tokenProvider.createToken(any(Authentication.class))).thenReturn("atesttoken");
+        when(this.refreshTokens.issue("test")).thenReturn(Mono.just("arefreshtoken"));
 
         var req = new AuthenticationRequest("test", "password");
 
@@ -65,7 +84,8 @@ class AuthControllerTest {
                 .exchange()
                 .expectHeader().valueEquals(HttpHeaders.AUTHORIZATION, "Bearer atesttoken")
                 .expectBody()
-                .jsonPath("$.access_token").isEqualTo("atesttoken");
+                .jsonPath("$.access_token").isEqualTo("atesttoken")
+                .jsonPath("$.refresh_token").isEqualTo("arefreshtoken");
 
         verify(this.authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(this.tokenProvider, times(1)).createToken(any(Authentication.class));
@@ -73,4 +93,115 @@ class AuthControllerTest {
         verifyNoMoreInteractions(this.tokenProvider);
     }
 
+    @Test
+    void testLoginWhenOverloaded() {
+        when(this.authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenReturn(Mono.error(new ServiceOverloadedException("Too many concurrent logins.",
+                        Duration.ofMillis(1500), new RejectedExecutionException())));
+
+        var req = new AuthenticationRequest("test", "password");
+
+        this.client.post()
+                .uri("/auth/login")
+                .body(BodyInserters.fromValue(req))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2")
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Service Overloaded");
+
+        verifyNoInteractions(this.tokenProvider);
+        verifyNoInteractions(this.refreshTokens);
+    }
+
+    @Test
+    void testRefresh() {
+        var authentication = new UsernamePasswordAuthenticationToken(
+                "test",
+                null,
+                AuthorityUtils.createAuthorityList("ROLE_USER")
+        );
+        when(this.refreshTokens.rotate("arefreshtoken"))
+                .thenReturn(Mono.just(new RefreshTokenService.Rotation(authentication, "anewrefreshtoken")));
+        when(this.tokenProvider.createToken(authentication)).thenReturn("atesttoken");
+
+        this.client.post()
+                .uri("/auth/refresh")
+                .bodyValue(Map.of("refresh_token", "arefreshtoken"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.AUTHORIZATION, "Bearer atesttoken")
+                .expectBody()
+                .jsonPath("$.access_token").isEqualTo("atesttoken")
+                .jsonPath("$.refresh_token").isEqualTo("anewrefreshtoken");
+
+        verify(this.refreshTokens, times(1)).rotate("arefreshtoken");
+        verifyNoInteractions(this.authenticationManager);
+    }
+
+    @Test
+    void testRefreshWithInvalidToken() {
+        when(this.refreshTokens.rotate("ausedtoken")).thenReturn(Mono.error(new InvalidRefreshTokenException()));
+
+        this.client.post()
+                .uri("/auth/refresh")
+                .bodyValue(Map.of("refresh_token", "ausedtoken"))
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Invalid Refresh Token");
+
+        verifyNoInteractions(this.tokenProvider);
+    }
+
+    @Test
+    void testLogout() {
+        var authentication = new UsernamePasswordAuthenticationToken("test", "atesttoken",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+        when(this.tokenProvider.verify("atesttoken"))
+                .thenReturn(JwtVerificationResult.valid(authentication, Instant.now().plusSeconds(60)));
+        when(this.refreshTokens.revokeAll("test")).thenReturn(Mono.empty());
+        when(this.revocations.revoke("atesttoken")).thenReturn(Mono.empty());
+
+        this.client.post()
+                .uri("/auth/logout")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer atesttoken")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        verify(this.revocations, times(1)).revoke("atesttoken");
+        verify(this.refreshTokens, times(1)).revokeAll("test");
+        verifyNoMoreInteractions(this.revocations);
+        verifyNoMoreInteractions(this.refreshTokens);
+    }
+
+    @Test
+    void testLogoutWithRefreshToken() {
+        when(this.refreshTokens.revoke("arefreshtoken")).thenReturn(Mono.empty());
+        when(this.revocations.revoke("atesttoken")).thenReturn(Mono.empty());
+
+        this.client.post()
+                .uri("/auth/logout")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer atesttoken")
+                .bodyValue(Map.of("refresh_token", "arefreshtoken"))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        verify(this.revocations, times(1)).revoke("atesttoken");
+        verify(this.refreshTokens, times(1)).revoke("arefreshtoken");
+        verifyNoMoreInteractions(this.refreshTokens);
+        verifyNoInteractions(this.tokenProvider);
+    }
+
+    @Test
+    void testLogoutWithoutToken() {
+        this.client.post()
+                .uri("/auth/logout")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        verifyNoInteractions(this.revocations);
+        verifyNoInteractions(this.refreshTokens);
+    }
+
 }
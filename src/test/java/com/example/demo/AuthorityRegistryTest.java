@@ -0,0 +1,77 @@
+package com.example.demo;
+
+import com.example.demo.security.jwt.AuthorityRegistry;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuthorityRegistryTest {
+
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    void testSameRolesShareAuthorities() {
+        var registry = new AuthorityRegistry();
+
+        // distinct string instances, as parsed from distinct tokens
+        var first = registry.authoritiesOf(new String("ROLE_USER,ROLE_ADMIN"));
+        var second = registry.authoritiesOf(new String("ROLE_USER,ROLE_ADMIN"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(AuthorityUtils.authorityListToSet(first)).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+        assertThatThrownBy(() -> first.clear()).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testBounded() {
+        var registry = new AuthorityRegistry(2);
+
+        registry.authoritiesOf("ROLE_A");
+        registry.authoritiesOf("ROLE_B");
+        var notKept = registry.authoritiesOf("ROLE_C");
+
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(AuthorityUtils.authorityListToSet(notKept)).containsExactly("ROLE_C");
+        assertThat(registry.authoritiesOf("ROLE_C")).isNotSameAs(notKept);
+    }
+
+    @Test
+    void testAllocatesLessThanParsing() {
+        var threadMXBean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean,
+                "thread allocation accounting is not supported by this JVM");
+        var allocations = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assumptions.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        var registry = new AuthorityRegistry();
+        var roles = "ROLE_USER,ROLE_ADMIN,ROLE_EDITOR";
+        long threadId = Thread.currentThread().threadId();
+
+        // warm up both paths, the first measurements would include the class loading and the JIT
+        for (int i = 0; i < ITERATIONS; i++) {
+            AuthorityUtils.commaSeparatedStringToAuthorityList(roles);
+            registry.authoritiesOf(roles);
+        }
+
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            AuthorityUtils.commaSeparatedStringToAuthorityList(roles);
+        }
+        long parsed = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            registry.authoritiesOf(roles);
+        }
+        long registered = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(registered).isLessThan(parsed / 10);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.example.demo;
+
+import com.example.demo.security.jwt.BloomFilter;
+import com.example.demo.security.jwt.TokenDigest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void testNoFalseNegatives() {
+        var filter = new BloomFilter(1000, 0.01);
+        List<TokenDigest> digests = IntStream.range(0, 1000)
+                .mapToObj(i -> TokenDigest.of("token-" + i))
+                .toList();
+
+        digests.forEach(filter::put);
+
+        assertThat(digests).allMatch(filter::mightContain);
+        assertThat(filter.insertions()).isEqualTo(1000L);
+    }
+
+    @Test
+    void testFalsePositiveRate() {
+        var filter = new BloomFilter(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> filter.put(TokenDigest.of("token-" + i)));
+
+        long falsePositives = IntStream.range(0, 10000)
+                .filter(i -> filter.mightContain(TokenDigest.of("other-token-" + i)))
+                .count();
+
+        assertThat(falsePositives / 10000.0).isLessThan(0.03);
+        assertThat(filter.expectedFalsePositiveProbability()).isBetween(0.005, 0.015);
+    }
+
+    @Test
+    void testEmptyFilter() {
+        var filter = new BloomFilter(1000, 0.01);
+
+        assertThat(filter.mightContain(TokenDigest.of("token"))).isFalse();
+        assertThat(filter.expectedFalsePositiveProbability()).isZero();
+    }
+
+}
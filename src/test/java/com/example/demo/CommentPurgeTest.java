@@ -0,0 +1,60 @@
+package com.example.demo;
+
+import com.example.demo.domain.PostId;
+import com.example.demo.repository.CommentPurge;
+import com.example.demo.repository.CommentPurgeProperties;
+import com.example.demo.repository.CommentRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommentPurgeTest {
+
+    private CommentRepository comments = mock(CommentRepository.class);
+
+    @Test
+    void testInlinePurgeWaitsForTheComments() {
+        var deleted = new AtomicInteger();
+        when(this.comments.deleteByPost(any(PostId.class)))
+                .thenReturn(Mono.fromCallable(() -> (long) deleted.incrementAndGet()));
+        var purge = new CommentPurge(this.comments, new CommentPurgeProperties());
+
+        StepVerifier.create(purge.purge("1")).verifyComplete();
+
+        assertThat(deleted).hasValue(1);
+    }
+
+    @Test
+    void testAsyncPurgeRetriesInTheBackground() throws InterruptedException {
+        var attempts = new AtomicInteger();
+        var purged = new CountDownLatch(1);
+        when(this.comments.deleteByPost(any(PostId.class)))
+                .thenReturn(Mono.defer(() -> attempts.incrementAndGet() == 1
+                        ? Mono.error(new IllegalStateException("unavailable"))
+                        : Mono.fromCallable(() -> {
+                            purged.countDown();
+                            return 2L;
+                        })));
+        var properties = new CommentPurgeProperties();
+        properties.setAsync(true);
+        properties.setRetryBackoffInMs(10);
+        var purge = new CommentPurge(this.comments, properties);
+
+        // completes at once, before the comments are purged
+        StepVerifier.create(purge.purge("1")).verifyComplete();
+
+        assertThat(purged.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(attempts).hasValue(2);
+        purge.stop();
+    }
+
+}
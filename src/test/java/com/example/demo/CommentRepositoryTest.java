@@ -63,6 +63,16 @@ class CommentRepositoryTest {
                             .as(StepVerifier::create)
                             .consumeNextWith(c -> assertThat(c.longValue()).isEqualTo(1L))
                             .verifyComplete();
+                }),
+                dynamicTest("delete by post id", () -> {
+                    this.comments.deleteByPost(new PostId("post-id"))
+                            .as(StepVerifier::create)
+                            .expectNext(1L)
+                            .verifyComplete();
+                    this.comments.countByPost(new PostId("post-id"))
+                            .as(StepVerifier::create)
+                            .expectNext(0L)
+                            .verifyComplete();
                 })
         );
 
@@ -120,15 +120,16 @@ class IntegrationTests {
         }
 
         @Test
-        @DisplayName("should return 404 when trying to update a none existing post")
-        void shouldReturn404WhenUpdatingNoneExistingPost() {
+        @DisplayName("should return 412 when trying to update a none existing post")
+        void shouldReturn412WhenUpdatingNoneExistingPost() {
             client.put().uri("/posts/none_existed")
+                    .ifMatch("*")
                     .body(BodyInserters.fromValue(Post.builder()
                             .title("updated title")
                             .content("updated content")
                             .build()))
                     .exchange().expectStatus()
-                    .isEqualTo(HttpStatus.NOT_FOUND);
+                    .isEqualTo(HttpStatus.PRECONDITION_FAILED);
         }
 
         @Test
@@ -178,9 +179,18 @@ class IntegrationTests {
                     .expectStatus().isOk()
                     .expectBodyList(Comment.class).hasSize(1);
 
+            // an update without the ETag of the post is refused
             String updatedTitle = "updated title";
             String updatedContent = "updated content";
             client.put().uri(savedPostUri)
+                    .bodyValue(Post.builder().title(updatedTitle)
+                            .content(updatedContent).build())
+                    .exchange().expectStatus().isEqualTo(HttpStatus.PRECONDITION_REQUIRED);
+
+            String eTag = client.get().uri(savedPostUri).exchange().expectStatus().isOk()
+                    .returnResult(Void.class).getResponseHeaders().getETag();
+            client.put().uri(savedPostUri)
+                    .ifMatch(eTag)
                     .bodyValue(Post.builder().title(updatedTitle)
                             .content(updatedContent).build())
                     .exchange().expectStatus().isNoContent();
@@ -0,0 +1,59 @@
+package com.example.demo;
+
+import com.example.demo.security.jwt.JwtProperties;
+import com.example.demo.security.jwt.JwtTokenProvider;
+import com.example.demo.web.JwksController;
+import io.jsonwebtoken.security.Jwks;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(
+        controllers = JwksController.class,
+        excludeAutoConfiguration = {
+                ReactiveUserDetailsServiceAutoConfiguration.class,
+                ReactiveSecurityAutoConfiguration.class
+        }
+)
+@Slf4j
+class JwksControllerTest {
+
+    @MockBean
+    private JwtTokenProvider tokenProvider;
+
+    @MockBean
+    private JwtProperties jwtProperties;
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void testGetJwks() {
+        var keyPair = Jwks.CRV.Ed25519.keyPair().build();
+        var jwk = Jwks.builder().key(keyPair.getPublic()).id("k1").algorithm("EdDSA").publicKeyUse("sig").build();
+        when(this.tokenProvider.getPublicJwks()).thenReturn(List.of(jwk));
+        when(this.jwtProperties.getJwksMaxAgeInMs()).thenReturn(300000L);
+
+        this.client.get()
+                .uri("/.well-known/jwks.json")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "max-age=300, public")
+                .expectBody()
+                .jsonPath("$.keys[0].kid").isEqualTo("k1")
+                .jsonPath("$.keys[0].kty").isEqualTo("OKP")
+                .jsonPath("$.keys[0].crv").isEqualTo("Ed25519")
+                .jsonPath("$.keys[0].d").doesNotExist();
+    }
+
+}
@@ -1,88 +1,178 @@
 package com.example.demo;
 
+import com.example.demo.security.jwt.JwtProperties;
 import com.example.demo.security.jwt.JwtTokenAuthenticationFilter;
 import com.example.demo.security.jwt.JwtTokenProvider;
+import com.example.demo.security.jwt.JwtVerificationResult;
+import com.example.demo.security.jwt.TokenDigest;
+import com.example.demo.security.jwt.TokenRevocationService;
+import com.example.demo.security.jwt.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
-import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class JwtAuthenticationFilterTest {
 
     private JwtTokenProvider tokenProvider = mock(JwtTokenProvider.class);
 
+    private TokenRevocationService revocations = mock(TokenRevocationService.class);
+
+    private VerifiedTokenCache tokenCache = new VerifiedTokenCache(new JwtProperties(), new SimpleMeterRegistry());
+
     private ServerWebExchange exchange = mock(ServerWebExchange.class, RETURNS_DEEP_STUBS);
 
-    private WebFilterChain chain = mock(WebFilterChain.class, RETURNS_DEEP_STUBS);
+    private AtomicReference<Authentication> authenticated = new AtomicReference<>();
+
+    private WebFilterChain chain = mock(WebFilterChain.class);
+
+    private JwtTokenAuthenticationFilter filter;
 
     @BeforeEach
     void setup() {
         reset(this.tokenProvider);
+        reset(this.revocations);
         reset(this.exchange);
         reset(this.chain);
+        when(this.chain.filter(this.exchange)).thenReturn(
+                ReactiveSecurityContextHolder.getContext()
+                        .map(SecurityContext::getAuthentication)
+                        .doOnNext(this.authenticated::set)
+                        .then()
+        );
+        when(this.tokenProvider.isAccepted(any(JwtVerificationResult.class))).thenReturn(true);
+        this.filter = new JwtTokenAuthenticationFilter(this.tokenProvider, this.tokenCache, this.revocations);
     }
 
     @Test
     void testFilter() {
-        var filter = new JwtTokenAuthenticationFilter(this.tokenProvider);
+        var usernamePasswordToken = new UsernamePasswordAuthenticationToken("test", "password",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+        when(this.exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+                .thenReturn("Bearer atesttoken");
+        when(this.tokenProvider.verify(anyString()))
+                .thenReturn(JwtVerificationResult.valid(usernamePasswordToken, Instant.now().plusSeconds(60)));
+        when(this.revocations.isRevoked(any(TokenDigest.class))).thenReturn(Mono.just(false));
+
+        StepVerifier.create(this.filter.filter(this.exchange, this.chain)).verifyComplete();
 
+        verify(this.chain, times(1)).filter(this.exchange);
+        assertThat(this.authenticated.get()).isEqualTo(usernamePasswordToken);
+    }
+
+    @Test
+    void testFilterDoesNotVerifyUnlessAsked() {
+        when(this.exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+                .thenReturn("Bearer atesttoken");
+        WebFilterChain permitAllChain = exchange -> Mono.empty();
+
+        StepVerifier.create(this.filter.filter(this.exchange, permitAllChain)).verifyComplete();
+
+        verifyNoInteractions(this.tokenProvider, this.revocations);
+    }
+
+    @Test
+    void testFilterVerifiesOncePerRequest() {
         var usernamePasswordToken = new UsernamePasswordAuthenticationToken("test", "password",
                 AuthorityUtils.createAuthorityList("ROLE_USER"));
 
         when(this.exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
                 .thenReturn("Bearer atesttoken");
-        when(this.tokenProvider.validateToken(anyString())).thenReturn(true);
-        when(this.tokenProvider.getAuthentication(anyString())).thenReturn(usernamePasswordToken);
-        when(
-                this.chain
-                        .filter(this.exchange)
-                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(usernamePasswordToken))
-        ).thenReturn(Mono.empty());
+        when(this.tokenProvider.verify(anyString()))
+                .thenReturn(JwtVerificationResult.valid(usernamePasswordToken, Instant.now().plusSeconds(60)));
+        when(this.revocations.isRevoked(any(TokenDigest.class))).thenReturn(Mono.just(false));
+        WebFilterChain twiceAskingChain = exchange -> ReactiveSecurityContextHolder.getContext()
+                .then(ReactiveSecurityContextHolder.getContext())
+                .then();
 
-        filter.filter(this.exchange, this.chain);
+        StepVerifier.create(this.filter.filter(this.exchange, twiceAskingChain)).verifyComplete();
 
-        verify(this.chain, atLeast(1)).filter(this.exchange);
+        verify(this.tokenProvider, times(1)).verify(anyString());
+        verify(this.revocations, times(1)).isRevoked(any(TokenDigest.class));
     }
 
     @Test
-    void testFilterWithNoToken() {
-        var filter = new JwtTokenAuthenticationFilter(this.tokenProvider);
+    void testFilterWithCachedToken() {
+        var usernamePasswordToken = new UsernamePasswordAuthenticationToken("test", "password",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
 
+        when(this.exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+                .thenReturn("Bearer acachedtoken");
+        when(this.tokenProvider.verify(anyString()))
+                .thenReturn(JwtVerificationResult.valid(usernamePasswordToken, Instant.now().plusSeconds(60)));
+        when(this.revocations.isRevoked(any(TokenDigest.class))).thenReturn(Mono.just(false));
+
+        StepVerifier.create(this.filter.filter(this.exchange, this.chain)).verifyComplete();
+        StepVerifier.create(this.filter.filter(this.exchange, this.chain)).verifyComplete();
+
+        verify(this.tokenProvider, times(1)).verify(anyString());
+        verify(this.chain, times(2)).filter(this.exchange);
+    }
+
+    @Test
+    void testFilterWithRevokedToken() {
+        var usernamePasswordToken = new UsernamePasswordAuthenticationToken("test", "password",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+        when(this.exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+                .thenReturn("Bearer arevokedtoken");
+        when(this.tokenProvider.verify(anyString()))
+                .thenReturn(JwtVerificationResult.valid(usernamePasswordToken, Instant.now().plusSeconds(60)));
+        when(this.revocations.isRevoked(any(TokenDigest.class))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(this.filter.filter(this.exchange, this.chain)).verifyComplete();
+
+        verify(this.chain, times(1)).filter(this.exchange);
+        assertThat(this.authenticated.get()).isNull();
+    }
+
+    @Test
+    void testFilterWithNoToken() {
         when(this.exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
                 .thenReturn(null);
-        when(this.chain.filter(this.exchange)).thenReturn(Mono.empty());
 
-        filter.filter(this.exchange, this.chain);
+        StepVerifier.create(this.filter.filter(this.exchange, this.chain)).verifyComplete();
 
         verify(this.chain, times(1)).filter(this.exchange);
+        verifyNoInteractions(this.tokenProvider, this.revocations);
     }
 
     @Test
     void testFilterWithInvalidToken() {
-        var filter = new JwtTokenAuthenticationFilter(this.tokenProvider);
-
         when(this.exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
                 .thenReturn("Bearer atesttoken");
-        when(this.tokenProvider.validateToken(anyString())).thenReturn(false);
-        when(this.chain.filter(this.exchange)).thenReturn(Mono.empty());
+        when(this.tokenProvider.verify(anyString()))
+                .thenReturn(JwtVerificationResult.invalid(JwtVerificationResult.Failure.MALFORMED));
 
-        filter.filter(this.exchange, this.chain);
+        StepVerifier.create(this.filter.filter(this.exchange, this.chain)).verifyComplete();
 
         verify(this.chain, times(1)).filter(this.exchange);
+        verifyNoInteractions(this.revocations);
+        assertThat(this.authenticated.get()).isNull();
     }
 
 }
@@ -25,6 +25,14 @@ class JwtPropertiesTest {
         void testProperties() {
             assertThat(this.properties.getSecretKey()).isEqualTo("rzxlszyykpbgqcflzxsqcysyhljt");
             assertThat(this.properties.getValidityInMs()).isEqualTo(3600000L);
+            assertThat(this.properties.getAlgorithm()).isEqualTo(JwtProperties.Algorithm.HS256);
+            assertThat(this.properties.getKeys()).isEmpty();
+            assertThat(this.properties.getRotationCheckIntervalInMs()).isEqualTo(60000L);
+            assertThat(this.properties.getCompact().isEnabled()).isFalse();
+            assertThat(this.properties.getCompact().getRoles()).isEmpty();
+            assertThat(this.properties.getCache().isEnabled()).isTrue();
+            assertThat(this.properties.getCache().getMaximumSize()).isEqualTo(10000L);
+            assertThat(this.properties.getRevocation().getFalsePositiveProbability()).isEqualTo(0.01);
         }
     }
 
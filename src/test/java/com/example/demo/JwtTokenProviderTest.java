@@ -2,13 +2,19 @@ package com.example.demo;
 
 import com.example.demo.security.jwt.JwtProperties;
 import com.example.demo.security.jwt.JwtTokenProvider;
+import com.example.demo.security.jwt.JwtVerificationResult;
+import com.example.demo.security.jwt.TokenDigest;
+import com.example.demo.security.jwt.VerifiedTokenCache;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
@@ -16,9 +22,11 @@ import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -100,6 +108,41 @@ class JwtTokenProviderTest {
                 .compact();
 
         assertThat(this.jwtTokenProvider.validateToken(expiredToken)).isFalse();
+        assertThat(this.jwtTokenProvider.verify(expiredToken).failure())
+                .isEqualTo(JwtVerificationResult.Failure.EXPIRED);
+    }
+
+    @Test
+    void testVerifyToken() {
+        String token = generateToken(TEST_USER, TEST_ROLE_NAME);
+        var result = this.jwtTokenProvider.verify(token);
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.expiration()).isAfter(Instant.now());
+        assertThat(result.authentication().getName()).isEqualTo(TEST_USER);
+        assertThat(AuthorityUtils.authorityListToSet(result.authentication().getAuthorities()))
+                .containsExactly(TEST_ROLE_NAME);
+    }
+
+    @Test
+    void testVerifyToken_malformed() {
+        var result = this.jwtTokenProvider.verify("anunknowtokencannotbeparsedbyjwtprovider");
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.authentication()).isNull();
+        assertThat(result.failure()).isEqualTo(JwtVerificationResult.Failure.MALFORMED);
+    }
+
+    @Test
+    void testVerifyToken_withoutExpiration() {
+        var secret = Base64.getEncoder().encodeToString(this.properties.getSecretKey().getBytes());
+        var token = Jwts.builder()
+                .subject(TEST_USER)
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), Jwts.SIG.HS256)
+                .compact();
+
+        var result = this.jwtTokenProvider.verify(token);
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.failure()).isEqualTo(JwtVerificationResult.Failure.MALFORMED);
+        assertThat(this.jwtTokenProvider.validateToken(token)).isFalse();
     }
 
     @Test
@@ -108,6 +151,174 @@ class JwtTokenProviderTest {
         assertThat(this.jwtTokenProvider.validateToken(token)).isTrue();
     }
 
+    @Test
+    void testRotateKeys() {
+        var now = Instant.now();
+        this.properties.setKeys(List.of(
+                key("k1", "rzxlszyykpbgqcflzxsqcysyhljt-k1", null, now.plusSeconds(7200)),
+                key("k2", "rzxlszyykpbgqcflzxsqcysyhljt-k2", now.plusSeconds(3600), null)
+        ));
+        this.jwtTokenProvider.init();
+
+        String tokenOfK1 = generateToken(TEST_USER, TEST_ROLE_NAME);
+        assertThat(headerOf(tokenOfK1)).contains("\"kid\":\"k1\"");
+
+        // k2 becomes the signing key, the tokens signed by k1 are still accepted.
+        this.jwtTokenProvider.rotateKeys(now.plusSeconds(3601));
+        String tokenOfK2 = generateToken(TEST_USER, TEST_ROLE_NAME);
+        assertThat(headerOf(tokenOfK2)).contains("\"kid\":\"k2\"");
+        assertThat(this.jwtTokenProvider.validateToken(tokenOfK1)).isTrue();
+        assertThat(this.jwtTokenProvider.validateToken(tokenOfK2)).isTrue();
+
+        // k1 is retired.
+        this.jwtTokenProvider.rotateKeys(now.plusSeconds(7201));
+        assertThat(this.jwtTokenProvider.verify(tokenOfK1).failure())
+                .isEqualTo(JwtVerificationResult.Failure.INVALID_SIGNATURE);
+        assertThat(this.jwtTokenProvider.validateToken(tokenOfK2)).isTrue();
+    }
+
+    @Test
+    void testTokenWithoutKidIsVerifiedByDefaultKeyAfterRotation() {
+        // a token issued before the key ring, signed by the secret key and without a kid
+        var secret = Base64.getEncoder().encodeToString(this.properties.getSecretKey().getBytes());
+        var legacyToken = Jwts.builder()
+                .subject(TEST_USER)
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), Jwts.SIG.HS256)
+                .compact();
+
+        var now = Instant.now();
+        this.properties.setKeys(List.of(
+                key("default", this.properties.getSecretKey(), null, now.plusSeconds(7200)),
+                key("k2", "rzxlszyykpbgqcflzxsqcysyhljt-k2", now.plusSeconds(3600), null)
+        ));
+        this.jwtTokenProvider.init();
+
+        // k2 signs the new tokens, the legacy token is still verified by the default key
+        this.jwtTokenProvider.rotateKeys(now.plusSeconds(3601));
+        assertThat(headerOf(generateToken(TEST_USER, TEST_ROLE_NAME))).contains("\"kid\":\"k2\"");
+        var result = this.jwtTokenProvider.verify(legacyToken);
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.kid()).isEqualTo("default");
+
+        // and rejected once the default key is retired
+        this.jwtTokenProvider.rotateKeys(now.plusSeconds(7201));
+        assertThat(this.jwtTokenProvider.verify(legacyToken).failure())
+                .isEqualTo(JwtVerificationResult.Failure.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void testRotateKeysRejectsCachedTokensOfRetiredKey() {
+        var now = Instant.now();
+        this.properties.setKeys(List.of(
+                key("k1", "rzxlszyykpbgqcflzxsqcysyhljt-k1", null, now.plusSeconds(7200)),
+                key("k2", "rzxlszyykpbgqcflzxsqcysyhljt-k2", now.plusSeconds(3600), null)
+        ));
+        this.jwtTokenProvider.init();
+        var tokenCache = new VerifiedTokenCache(this.properties, new SimpleMeterRegistry());
+
+        String tokenOfK1 = generateToken(TEST_USER, TEST_ROLE_NAME);
+        var digest = TokenDigest.of(tokenOfK1);
+        var verified = tokenCache.get(digest, tokenOfK1, this.jwtTokenProvider::verify,
+                this.jwtTokenProvider::isAccepted);
+        assertThat(verified.isValid()).isTrue();
+        assertThat(verified.kid()).isEqualTo("k1");
+
+        // k1 is retired, the cached result must not be served any more.
+        this.jwtTokenProvider.rotateKeys(now.plusSeconds(7201));
+        var result = tokenCache.get(digest, tokenOfK1, this.jwtTokenProvider::verify,
+                this.jwtTokenProvider::isAccepted);
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.failure()).isEqualTo(JwtVerificationResult.Failure.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void testCachedTokenGetsANewAuthenticationPerRequest() {
+        var tokenCache = new VerifiedTokenCache(this.properties, new SimpleMeterRegistry());
+        String token = generateToken(TEST_USER, TEST_ROLE_NAME);
+        var digest = TokenDigest.of(token);
+
+        var first = tokenCache.get(digest, token, this.jwtTokenProvider::verify, this.jwtTokenProvider::isAccepted);
+        first.authentication().setAuthenticated(false);
+        var second = tokenCache.get(digest, token, this.jwtTokenProvider::verify, this.jwtTokenProvider::isAccepted);
+
+        assertThat(second.authentication()).isNotSameAs(first.authentication());
+        assertThat(second.authentication().isAuthenticated()).isTrue();
+        assertThat(second.authentication().getPrincipal()).isSameAs(first.authentication().getPrincipal());
+        assertThat(AuthorityUtils.authorityListToSet(second.authentication().getAuthorities()))
+                .containsExactly(TEST_ROLE_NAME);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = JwtProperties.Algorithm.class, names = {"ES256", "EdDSA"})
+    void testAsymmetricAlgorithms(JwtProperties.Algorithm algorithm) {
+        this.properties.setAlgorithm(algorithm);
+        this.jwtTokenProvider.init();
+
+        String token = generateToken(TEST_USER, TEST_ROLE_NAME);
+        assertThat(headerOf(token)).contains("\"alg\":\"" + algorithm.name() + "\"");
+        assertThat(this.jwtTokenProvider.verify(token).isValid()).isTrue();
+        assertThat(this.jwtTokenProvider.getPublicJwks()).hasSize(1)
+                .allSatisfy(jwk -> assertThat(jwk.getId()).isEqualTo("default"));
+    }
+
+    @Test
+    void testCompactToken() {
+        String standardToken = generateToken(TEST_USER, TEST_ROLE_NAME, "ROLE_ADMIN");
+
+        this.properties.getCompact().setEnabled(true);
+        this.properties.getCompact().setRoles(List.of(TEST_ROLE_NAME, "ROLE_ADMIN"));
+        this.jwtTokenProvider.init();
+
+        String compactToken = generateToken(TEST_USER, TEST_ROLE_NAME, "ROLE_ADMIN");
+        assertThat(payloadOf(compactToken)).contains("\"r\":3").doesNotContain("roles", "iat");
+        assertThat(compactToken.length()).isLessThan(standardToken.length());
+
+        // both formats are accepted during the migration
+        for (String token : List.of(compactToken, standardToken)) {
+            var result = this.jwtTokenProvider.verify(token);
+            assertThat(result.isValid()).isTrue();
+            assertThat(AuthorityUtils.authorityListToSet(result.authentication().getAuthorities()))
+                    .containsExactlyInAnyOrder(TEST_ROLE_NAME, "ROLE_ADMIN");
+        }
+    }
+
+    @Test
+    void testCompactToken_roleNotInTable() {
+        this.properties.getCompact().setEnabled(true);
+        this.properties.getCompact().setRoles(List.of(TEST_ROLE_NAME));
+        this.jwtTokenProvider.init();
+
+        String token = generateToken(TEST_USER, TEST_ROLE_NAME, "ROLE_ADMIN");
+        assertThat(payloadOf(token)).contains("\"roles\":\"ROLE_USER,ROLE_ADMIN\"");
+        assertThat(AuthorityUtils.authorityListToSet(this.jwtTokenProvider.getAuthentication(token).getAuthorities()))
+                .containsExactlyInAnyOrder(TEST_ROLE_NAME, "ROLE_ADMIN");
+    }
+
+    @Test
+    void testNoPublicJwksForHs256() {
+        assertThat(this.jwtTokenProvider.getPublicJwks()).isEmpty();
+    }
+
+    private static JwtProperties.Key key(String kid, String secret, Instant activeFrom, Instant retireAt) {
+        var key = new JwtProperties.Key();
+        key.setKid(kid);
+        key.setSecret(secret);
+        key.setActiveFrom(activeFrom);
+        key.setRetireAt(retireAt);
+        return key;
+    }
+
+    private static String headerOf(String token) {
+        return new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+                StandardCharsets.UTF_8);
+    }
+
+    private static String payloadOf(String token) {
+        var parts = token.split("\\.");
+        return new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+    }
+
     private String generateToken(String username, String... roles) {
         Collection<? extends GrantedAuthority> authorities = AuthorityUtils.createAuthorityList(roles);
         var principal = new User(username, "password", authorities);
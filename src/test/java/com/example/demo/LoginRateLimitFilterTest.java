@@ -0,0 +1,151 @@
+package com.example.demo;
+
+import com.example.demo.security.LoginRateLimitFilter;
+import com.example.demo.security.LoginRateLimitProperties;
+import com.example.demo.security.LoginRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class LoginRateLimitFilterTest {
+
+    private AtomicInteger passed = new AtomicInteger();
+
+    private AtomicReference<String> forwardedBody = new AtomicReference<>();
+
+    // reads the body the way the controller would, to make sure it is replayed
+    private WebFilterChain chain = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+            .doOnNext(buffer -> {
+                this.forwardedBody.set(buffer.toString(StandardCharsets.UTF_8));
+                DataBufferUtils.release(buffer);
+            })
+            .doOnSuccess(it -> this.passed.incrementAndGet())
+            .then();
+
+    private LoginRateLimitProperties properties;
+
+    private LoginRateLimitFilter filter;
+
+    @BeforeEach
+    void setup() {
+        this.properties = new LoginRateLimitProperties();
+        this.properties.setPerIp(new LoginRateLimitProperties.Limit(3, 1));
+        this.properties.setPerUsername(new LoginRateLimitProperties.Limit(2, 1));
+        this.filter = new LoginRateLimitFilter(new LoginRateLimiter(this.properties, new SimpleMeterRegistry()),
+                new ObjectMapper());
+    }
+
+    @Test
+    void testLoginUnderLimitIsPassedWithBody() {
+        var exchange = login("10.0.0.1", "user");
+
+        StepVerifier.create(this.filter.filter(exchange, this.chain)).verifyComplete();
+
+        assertThat(this.passed).hasValue(1);
+        assertThat(this.forwardedBody.get()).isEqualTo(body("user"));
+        assertThat(exchange.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void testLoginOverUsernameLimit() {
+        // usernames are compared case insensitively
+        filter(login("10.0.0.1", "user"));
+        filter(login("10.0.0.2", "USER"));
+
+        var exchange = login("10.0.0.3", "user");
+        filter(exchange);
+
+        assertThat(this.passed).hasValue(2);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("60");
+    }
+
+    @Test
+    void testLimitWithoutRefillIsRejected() {
+        this.properties.setPerUsername(new LoginRateLimitProperties.Limit(2, 0));
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new LoginRateLimiter(this.properties, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void testLoginOverIpLimit() {
+        filter(login("10.0.0.1", "user1"));
+        filter(login("10.0.0.1", "user2"));
+        filter(login("10.0.0.1", "user3"));
+
+        var exchange = login("10.0.0.1", "user4");
+        filter(exchange);
+
+        assertThat(this.passed).hasValue(3);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("60");
+    }
+
+    @Test
+    void testLoginWithTooLargeBody() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/auth/login")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 8080))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"username\":\"" + "u".repeat(16 * 1024) + "\",\"password\":\"password\"}"));
+
+        StepVerifier.create(this.filter.filter(exchange, this.chain)).verifyComplete();
+
+        assertThat(this.passed).hasValue(0);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    void testOtherRequestsAreNotLimited() {
+        for (int i = 0; i < 10; i++) {
+            filter(MockServerWebExchange.from(MockServerHttpRequest.get("/posts")
+                    .remoteAddress(new InetSocketAddress("10.0.0.1", 8080))));
+        }
+
+        assertThat(this.passed).hasValue(10);
+    }
+
+    @Test
+    void testDisabled() {
+        this.properties.setEnabled(false);
+
+        for (int i = 0; i < 10; i++) {
+            filter(login("10.0.0.1", "user"));
+        }
+
+        assertThat(this.passed).hasValue(10);
+    }
+
+    private void filter(MockServerWebExchange exchange) {
+        this.filter.filter(exchange, this.chain).block();
+    }
+
+    private static MockServerWebExchange login(String ip, String username) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/auth/login")
+                .remoteAddress(new InetSocketAddress(ip, 8080))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(username)));
+    }
+
+    private static String body(String username) {
+        return "{\"username\":\"" + username + "\",\"password\":\"password\"}";
+    }
+
+}
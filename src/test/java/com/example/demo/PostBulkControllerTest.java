@@ -0,0 +1,98 @@
+package com.example.demo;
+
+import com.example.demo.repository.ImportedPost;
+import com.example.demo.repository.PostBulkWriter;
+import com.example.demo.web.PostBulkController;
+import com.example.demo.web.PostProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@WebFluxTest(
+        controllers = PostBulkController.class,
+        excludeAutoConfiguration = {
+                ReactiveUserDetailsServiceAutoConfiguration.class,
+                ReactiveSecurityAutoConfiguration.class
+        }
+)
+class PostBulkControllerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @MockBean
+    private PostBulkWriter postBulkWriter;
+
+    @MockBean
+    private PostProperties properties;
+
+    @BeforeEach
+    void setup() {
+        var bulk = new PostProperties.Bulk();
+        bulk.setBatchSize(2);
+        given(properties.getBulk()).willReturn(bulk);
+    }
+
+    @Test
+    void testBulkReturnsResultPerLine() {
+        given(postBulkWriter.insert(anyList())).willAnswer(invocation -> {
+            List<ImportedPost> batch = invocation.getArgument(0);
+            batch.forEach(imported -> {
+                if (imported.post().getId() == null) {
+                    imported.post().setId("generated");
+                }
+            });
+            // the second post of the first batch is a duplicate
+            return Mono.just(batch.size() == 2 ? Map.of(1, "duplicate key") : Map.of());
+        });
+
+        var body = """
+                {"title": "first", "content": "content", "comments": [{"content": "a comment"}]}
+                {"id": "dup", "title": "second", "content": "content"}
+
+                {"title": "", "content": "content"}
+                not json
+                """;
+
+        var results = client.post().uri("/posts:bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Map.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(results).hasSize(4);
+        assertThat(results.get(0)).containsEntry("line", 1).containsEntry("status", "CREATED")
+                .containsEntry("id", "generated").containsEntry("comments", 1);
+        assertThat(results.get(1)).containsEntry("line", 2).containsEntry("status", "FAILED")
+                .containsEntry("id", "dup").containsEntry("error", "duplicate key");
+        assertThat(results.get(2)).containsEntry("line", 4).containsEntry("status", "INVALID")
+                .containsEntry("error", "title: must not be blank");
+        assertThat(results.get(3)).containsEntry("line", 5).containsEntry("status", "INVALID");
+
+        verify(postBulkWriter, times(2)).insert(anyList());
+        verify(postBulkWriter, timeout(1000)).refresh();
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.example.demo;
+
+import com.example.demo.domain.Post;
+import com.example.demo.repository.PostCache;
+import com.example.demo.repository.PostCacheProperties;
+import com.example.demo.repository.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostCacheTest {
+
+    private PostRepository posts = mock(PostRepository.class);
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PostCache postCache;
+
+    @BeforeEach
+    void setup() {
+        this.postCache = new PostCache(this.posts, new PostCacheProperties(), this.meterRegistry);
+    }
+
+    @Test
+    void testHitAndInvalidate() {
+        var post = Post.builder().id("1").title("my post").content("content").build();
+        when(this.posts.findById("1")).thenReturn(Mono.just(post));
+
+        StepVerifier.create(this.postCache.findById("1")).expectNext(post).verifyComplete();
+        StepVerifier.create(this.postCache.findById("1")).expectNext(post).verifyComplete();
+        verify(this.posts, times(1)).findById("1");
+        assertThat(this.meterRegistry.get("posts.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+
+        this.postCache.invalidate("1");
+
+        StepVerifier.create(this.postCache.findById("1")).expectNext(post).verifyComplete();
+        verify(this.posts, times(2)).findById("1");
+    }
+
+    @Test
+    void testMissingPostIsNotCached() {
+        when(this.posts.findById("none")).thenReturn(Mono.empty());
+
+        StepVerifier.create(this.postCache.findById("none")).verifyComplete();
+        StepVerifier.create(this.postCache.findById("none")).verifyComplete();
+
+        verify(this.posts, times(2)).findById("none");
+    }
+
+    @Test
+    void testDisabledCacheReadsThrough() {
+        var properties = new PostCacheProperties();
+        properties.setEnabled(false);
+        var disabled = new PostCache(this.posts, properties, new SimpleMeterRegistry());
+        var post = Post.builder().id("1").build();
+        when(this.posts.findById("1")).thenReturn(Mono.just(post));
+
+        StepVerifier.create(disabled.findById("1")).expectNext(post).verifyComplete();
+        StepVerifier.create(disabled.findById("1")).expectNext(post).verifyComplete();
+
+        verify(this.posts, times(2)).findById("1");
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.example.demo;
+
+import com.example.demo.repository.PostCache;
+import com.example.demo.repository.PostCacheProperties;
+import com.example.demo.repository.PostChangeStream;
+import com.example.demo.repository.PostCounts;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostChangeStreamTest {
+
+    private ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+
+    private PostCache postCache = mock(PostCache.class);
+
+    private PostCounts postCounts = mock(PostCounts.class);
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PostChangeStream changeStream;
+
+    @BeforeEach
+    void setup() {
+        when(this.postCache.isEnabled()).thenReturn(true);
+        when(this.mongoTemplate.getCollectionName(any())).thenReturn("posts");
+        this.changeStream = new PostChangeStream(this.mongoTemplate, this.postCache, this.postCounts,
+                new PostCacheProperties(), this.meterRegistry);
+    }
+
+    @Test
+    void testInsertUpdateAndDeleteEvictTheChangedPost() {
+        var id = new ObjectId();
+        var changedAt = System.currentTimeMillis() - 250;
+
+        this.changeStream.apply(event("insert", id, changedAt));
+        this.changeStream.apply(event("update", id, changedAt));
+        this.changeStream.apply(event("delete", id, changedAt));
+
+        verify(this.postCache, times(3)).invalidate(id.toHexString());
+        verify(this.postCache, never()).invalidateAll();
+        verify(this.postCounts, times(3)).invalidateAll();
+
+        var lag = this.meterRegistry.get("posts.cache.invalidation.lag").timer();
+        assertThat(lag.count()).isEqualTo(3);
+        assertThat(lag.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(250);
+    }
+
+    @Test
+    void testInvalidateEventEvictsAllPosts() {
+        this.changeStream.apply(event("invalidate", null, System.currentTimeMillis()));
+
+        verify(this.postCache).invalidateAll();
+        verify(this.postCache, never()).invalidate(anyString());
+        verify(this.postCounts).invalidateAll();
+        assertThat(this.meterRegistry.get("posts.cache.invalidation.lag").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testStandaloneServerIsNotWatched() {
+        when(this.mongoTemplate.executeCommand(any(Document.class)))
+                .thenReturn(Mono.just(new Document("isWritablePrimary", true)));
+
+        this.changeStream.start();
+
+        verify(this.mongoTemplate, never()).changeStream(anyString(), any(ChangeStreamOptions.class), any());
+        verify(this.postCache, never()).invalidateAll();
+    }
+
+    @Test
+    void testReplicaSetIsWatched() {
+        when(this.mongoTemplate.executeCommand(any(Document.class)))
+                .thenReturn(Mono.just(new Document("setName", "rs0")));
+        doReturn(Flux.never()).when(this.mongoTemplate)
+                .changeStream(eq("posts"), any(ChangeStreamOptions.class), eq(Document.class));
+
+        this.changeStream.start();
+
+        verify(this.mongoTemplate).changeStream(eq("posts"), any(ChangeStreamOptions.class), eq(Document.class));
+        verify(this.postCache).invalidateAll();
+        this.changeStream.stop();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamEvent<Document> event(String operationType, ObjectId id, long wallTime) {
+        ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+        when(raw.getOperationTypeString()).thenReturn(operationType);
+        when(raw.getDocumentKey()).thenReturn(id != null ? new BsonDocument("_id", new BsonObjectId(id)) : null);
+        when(raw.getWallTime()).thenReturn(new BsonDateTime(wallTime));
+        ChangeStreamEvent<Document> event = mock(ChangeStreamEvent.class);
+        when(event.getRaw()).thenReturn(raw);
+        return event;
+    }
+
+}
@@ -3,13 +3,25 @@ package com.example.demo;
 import com.example.demo.domain.Comment;
 import com.example.demo.domain.Post;
 import com.example.demo.domain.PostId;
+import com.example.demo.repository.CommentPurge;
 import com.example.demo.repository.CommentRepository;
+import com.example.demo.repository.PostCache;
+import com.example.demo.repository.PostCounts;
+import com.example.demo.repository.PostFields;
 import com.example.demo.repository.PostRepository;
+import com.example.demo.repository.PostTitle;
+import com.example.demo.repository.PostTitleIndex;
+import com.example.demo.repository.PostUpdate;
 import com.example.demo.web.CommentForm;
 import com.example.demo.web.CreatePostCommand;
+import com.example.demo.web.PatchPostCommand;
 import com.example.demo.web.PostController;
+import com.example.demo.web.PostCursor;
+import com.example.demo.web.PostProperties;
+import com.example.demo.web.UpdatePostCommand;
 import com.example.demo.web.UpdateStatusRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -24,23 +36,24 @@ import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDeta
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.stream.IntStream;
 
 import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
@@ -60,6 +73,10 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 @TestInstance(TestInstance.Lifecycle.PER_METHOD)
 class PostControllerTest {
 
+    private static final PostFields SUMMARY = PostFields.summary(200);
+
+    private static final PostFields VALIDATORS = PostFields.of(List.of("version", "lastModifiedDate"), 0);
+
     @Autowired
     private WebTestClient client;
 
@@ -69,6 +86,21 @@ class PostControllerTest {
     @MockBean
     private CommentRepository comments;
 
+    @MockBean
+    private PostCounts postCounts;
+
+    @MockBean
+    private PostProperties properties;
+
+    @MockBean
+    private PostTitleIndex postTitleIndex;
+
+    @MockBean
+    private PostCache postCache;
+
+    @MockBean
+    private CommentPurge commentPurge;
+
     @BeforeAll
     public static void beforeAll() {
         log.debug("before all...");
@@ -82,6 +114,10 @@ class PostControllerTest {
     @BeforeEach
     void beforeEach() {
         log.debug("before each...");
+        given(properties.getMaxPageSize()).willReturn(100);
+        given(properties.getExcerptLength()).willReturn(200);
+        given(properties.getSearch()).willReturn(new PostProperties.Search());
+        given(properties.getExport()).willReturn(new PostProperties.Export());
     }
 
     @AfterEach
@@ -89,6 +125,7 @@ class PostControllerTest {
         log.debug("after each...");
         reset(comments);
         reset(posts);
+        reset(postCounts);
     }
 
     @Nested
@@ -104,8 +141,8 @@ class PostControllerTest {
                             .createdDate(LocalDateTime.now()).build())
                     .toList();
 
-            given(posts.findByTitleContains(anyString(), isA(Pageable.class))).willReturn(Flux.fromIterable(data));
-            given(posts.countByTitleContains(anyString())).willReturn(Mono.just(30L));
+            given(posts.findByOffset("5", 0L, 10, SUMMARY)).willReturn(Flux.fromIterable(data));
+            given(postCounts.countByTitleContains(anyString())).willReturn(Mono.just(30L));
 
 
             client.get().uri(uriBuilder -> uriBuilder.path("/posts").queryParam("q", "5").build())
@@ -113,14 +150,273 @@ class PostControllerTest {
                     .expectStatus().isOk()
                     .expectBody()
                     .jsonPath("$.data.size()").isEqualTo(5)
-                    .jsonPath("$.count").isEqualTo(30L);
+                    .jsonPath("$.count").isEqualTo(30L)
+                    .jsonPath("$.hasNext").isEqualTo(true);
+
+
+            verify(posts, times(1)).findByOffset("5", 0L, 10, SUMMARY);
+            verify(postCounts, times(1)).countByTitleContains(anyString());
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should search in the text index when the text search mode is on")
+        void shouldSearchTextIndexWhenTextSearchModeIsOn() {
+            var search = new PostProperties.Search();
+            search.setMode(PostProperties.SearchMode.TEXT);
+            given(properties.getSearch()).willReturn(search);
+            given(posts.findByText("blog posts", "english", 0L, 10, SUMMARY)).willReturn(Flux.just(
+                    Post.builder().id("1").title("my blog post").content("content").score(1.5f).build()));
+            given(postCounts.countByText("blog posts", "english")).willReturn(Mono.just(1L));
+
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts").queryParam("q", "blog posts").build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.data.size()").isEqualTo(1)
+                    .jsonPath("$.data[0].score").isEqualTo(1.5)
+                    .jsonPath("$.count").isEqualTo(1L)
+                    .jsonPath("$.hasNext").isEqualTo(false);
+
+            verify(posts, times(1)).findByText("blog posts", "english", 0L, 10, SUMMARY);
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return hasNext but no count when getting posts with count=none")
+        void shouldReturnHasNextWithoutCount() {
+            List<Post> data = IntStream.range(1, 4)// one more post than the page size.
+                    .mapToObj(n -> Post.builder().id("" + n).title("my " + n + " blog post")
+                            .content("content of my " + n + " blog post").createdDate(LocalDateTime.now()).build())
+                    .toList();
+            given(posts.findByOffset("blog", 4L, 3, SUMMARY)).willReturn(Flux.fromIterable(data));
+
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts")
+                            .queryParam("q", "blog")
+                            .queryParam("page", 2)
+                            .queryParam("size", 2)
+                            .queryParam("count", "none").build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.data.size()").isEqualTo(2)
+                    .jsonPath("$.hasNext").isEqualTo(true)
+                    .jsonPath("$.count").doesNotExist();
+
+            verify(posts, times(1)).findByOffset("blog", 4L, 3, SUMMARY);
+            verifyNoMoreInteractions(posts);
+            verifyNoInteractions(postCounts);
+        }
+
+        @Test
+        @DisplayName("should return the next cursor when getting posts by cursor")
+        void shouldReturnNextCursorWhenGettingPostsByCursor() {
+            var createdDate = LocalDateTime.of(2024, 1, 1, 12, 0);
+            List<Post> data = IntStream.range(1, 4)// one more post than the page size.
+                    .mapToObj(n -> Post.builder().id("" + n).title("my " + n + " blog post")
+                            .content("content of my " + n + " blog post").createdDate(createdDate.minusHours(n)).build())
+                    .toList();
+            given(posts.findByKeyset("", null, null, 3, SUMMARY)).willReturn(Flux.fromIterable(data));
+
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts")
+                            .queryParam("cursor", "").queryParam("size", 2).build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.data.size()").isEqualTo(2)
+                    .jsonPath("$.next").isEqualTo(new PostCursor(createdDate.minusHours(2), "2").encode());
+
+            verify(posts, times(1)).findByKeyset("", null, null, 3, SUMMARY);
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return no next cursor on the last page and cap the page size")
+        void shouldReturnNoNextCursorOnLastPage() {
+            var cursor = new PostCursor(LocalDateTime.of(2024, 1, 1, 12, 0), "2");
+            given(posts.findByKeyset("blog", cursor.createdDate(), "2", 101, SUMMARY)).willReturn(Flux.just(
+                    Post.builder().id("1").title("my blog post").content("content").createdDate(LocalDateTime.now())
+                            .build()));
+
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts")
+                            .queryParam("q", "blog")
+                            .queryParam("cursor", cursor.encode())
+                            .queryParam("size", 1000).build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.data.size()").isEqualTo(1)
+                    .jsonPath("$.next").doesNotExist();
+
+            verify(posts, times(1)).findByKeyset("blog", cursor.createdDate(), "2", 101, SUMMARY);
+            verifyNoMoreInteractions(posts);
+        }
 
+        @Test
+        @DisplayName("should read only the selected fields when getting posts with fields")
+        void shouldReadSelectedFieldsWhenGettingPostsWithFields() {
+            // the validators are read with the fields, the tag of the page is made of them
+            var fields = PostFields.of(List.of("title", "content", "version", "lastModifiedDate"), 200);
+            given(posts.findByOffset("", 0L, 10, fields)).willReturn(Flux.just(
+                    Post.builder().id("1").title("my blog post").content("content").status(null).build()));
+            given(postCounts.countByTitleContains("")).willReturn(Mono.just(1L));
+
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts").queryParam("fields", "title,content").build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.data[0].title").isEqualTo("my blog post")
+                    .jsonPath("$.data[0].content").isEqualTo("content")
+                    .jsonPath("$.data[0].status").doesNotExist()
+                    .jsonPath("$.data[0].createdDate").doesNotExist();
+
+            verify(posts, times(1)).findByOffset("", 0L, 10, fields);
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 304 when the posts of the page did not change")
+        void shouldReturn304WhenGettingPostsNotModified() {
+            var first = Post.builder().id("1").title("my blog post").version(1L).build();
+            var updated = Post.builder().id("1").title("my updated blog post").version(2L).build();
+            given(posts.findByOffset("", 0L, 10, SUMMARY))
+                    .willReturn(Flux.just(first), Flux.just(first), Flux.just(updated));
+            given(postCounts.countByTitleContains("")).willReturn(Mono.just(1L));
+
+            var eTag = client.get().uri("/posts")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(String.class)
+                    .getResponseHeaders().getETag();
+            assertThat(eTag).startsWith("W/");
 
-            verify(posts, times(1)).findByTitleContains(anyString(), any(Pageable.class));
-            verify(posts, times(1)).countByTitleContains(anyString());
+            client.get().uri("/posts")
+                    .ifNoneMatch(eTag)
+                    .exchange()
+                    .expectStatus().isNotModified();
+
+            // the post has a new version
+            client.get().uri("/posts")
+                    .ifNoneMatch(eTag)
+                    .exchange()
+                    .expectStatus().isOk();
+
+            verify(posts, times(3)).findByOffset("", 0L, 10, SUMMARY);
             verifyNoMoreInteractions(posts);
         }
 
+        @Test
+        @DisplayName("should return 400 when getting posts with an unknown field")
+        void shouldReturn400WhenGettingPostsWithUnknownField() {
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts").queryParam("fields", "title,password").build())
+                    .exchange()
+                    .expectStatus().isBadRequest();
+
+            verifyNoInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 400 when getting posts by an invalid cursor")
+        void shouldReturn400WhenGettingPostsByInvalidCursor() {
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts").queryParam("cursor", "notacursor").build())
+                    .exchange()
+                    .expectStatus().isBadRequest();
+
+            verifyNoInteractions(posts);
+        }
+
+    }
+
+    @Nested
+    @DisplayName("/posts/export GET")
+    class ExportingPosts {
+
+        @Test
+        @DisplayName("should stream the posts after the given one as JSON lines")
+        void shouldStreamPostsAsJsonLines() {
+            var after = new ObjectId();
+            given(posts.findAllAfter(after, 500)).willReturn(Flux.just(
+                    Post.builder().id("2").title("second post").content("content").build(),
+                    Post.builder().id("3").title("third post").content("content").build()));
+
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts/export").queryParam("after", after.toHexString()).build())
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    .expectBodyList(Post.class)
+                    .hasSize(2);
+
+            verify(posts, times(1)).findAllAfter(after, 500);
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should resume the event stream after the last event id")
+        void shouldResumeEventStreamAfterLastEventId() {
+            var lastEventId = new ObjectId();
+            given(posts.findAllAfter(lastEventId, 500)).willReturn(Flux.just(
+                    Post.builder().id("3").title("third post").content("content").build()));
+
+            client.get().uri("/posts/export")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .header("Last-Event-ID", lastEventId.toHexString())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(String.class)
+                    .value(containsString("id:3"));
+
+            verify(posts, times(1)).findAllAfter(lastEventId, 500);
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 400 when exporting after an invalid id")
+        void shouldReturn400WhenExportingAfterInvalidId() {
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts/export").queryParam("after", "1").build())
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+
+            verifyNoInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 400 when resuming the event stream after an invalid last event id")
+        void shouldReturn400WhenResumingEventStreamAfterInvalidLastEventId() {
+            client.get().uri("/posts/export")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .header("Last-Event-ID", "2")
+                    .exchange()
+                    .expectStatus().isBadRequest();
+
+            verifyNoInteractions(posts);
+        }
+
+    }
+
+    @Nested
+    @DisplayName("/posts/suggest GET")
+    class SuggestingPostTitles {
+
+        @Test
+        @DisplayName("should return the titles from the title index")
+        void shouldReturnTitlesFromTitleIndex() {
+            given(postTitleIndex.suggest("my", 5)).willReturn(List.of(new PostTitle("1", "My first post")));
+
+            client.get().uri(uriBuilder -> uriBuilder.path("/posts/suggest")
+                            .queryParam("prefix", "my")
+                            .queryParam("size", 5).build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.size()").isEqualTo(1)
+                    .jsonPath("$[0].id").isEqualTo("1")
+                    .jsonPath("$[0].title").isEqualTo("My first post");
+
+            verifyNoInteractions(posts);
+        }
+
     }
 
     @Nested
@@ -142,11 +438,119 @@ class PostControllerTest {
                     .jsonPath("$.id").isEqualTo("1")
                     .jsonPath("$.content").isEqualTo("content of my first post");
 
+            // not conditional, the validators are taken from the post itself
             verify(posts, times(1)).findById(anyString());
             verifyNoMoreInteractions(posts);
 
         }
 
+        @Test
+        @DisplayName("should return the validators of the post when getting post by id")
+        void shouldReturnValidatorsWhenGettingPostById() {
+            var modified = LocalDateTime.of(2024, 1, 1, 12, 0);
+            var post = Post.builder().id("1").title("my first post").content("content of my first post")
+                    .lastModifiedDate(modified).build();
+            given(posts.findById("1")).willReturn(Mono.just(post));
+
+            client.get()
+                    .uri("/posts/1")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals("ETag", eTagOf(modified))
+                    .expectHeader().exists("Last-Modified");
+
+            verify(posts, times(1)).findById("1");
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should read the post after its validators when it is modified since If-None-Match")
+        void shouldReadPostWhenModifiedSinceIfNoneMatch() {
+            var modified = LocalDateTime.of(2024, 1, 1, 12, 0);
+            given(posts.findById("1", VALIDATORS)).willReturn(
+                    Mono.just(Post.builder().id("1").lastModifiedDate(modified).build()));
+            given(posts.findById("1")).willReturn(Mono.just(Post.builder().id("1").title("my first post")
+                    .content("content of my first post").lastModifiedDate(modified).build()));
+
+            client.get()
+                    .uri("/posts/1")
+                    .ifNoneMatch("\"1-0\"")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals("ETag", eTagOf(modified));
+
+            verify(posts, times(1)).findById("1", VALIDATORS);
+            verify(posts, times(1)).findById("1");
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 304 without reading the post when it is not modified")
+        void shouldReturn304WhenGettingNotModifiedPostById() {
+            var modified = LocalDateTime.of(2024, 1, 1, 12, 0);
+            given(posts.findById("1", VALIDATORS)).willReturn(
+                    Mono.just(Post.builder().id("1").lastModifiedDate(modified).build()));
+
+            client.get()
+                    .uri("/posts/1")
+                    .ifNoneMatch(eTagOf(modified))
+                    .exchange()
+                    .expectStatus().isNotModified()
+                    .expectBody().isEmpty();
+
+            verify(posts, times(1)).findById("1", VALIDATORS);
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should serve the whole post from the cache when it is enabled")
+        void shouldServePostFromCacheWhenEnabled() {
+            var modified = LocalDateTime.of(2024, 1, 1, 12, 0);
+            given(postCache.isEnabled()).willReturn(true);
+            given(postCache.findById("1")).willReturn(Mono.just(Post.builder().id("1").title("my first post")
+                    .content("content of my first post").lastModifiedDate(modified).build()));
+
+            client.get()
+                    .uri("/posts/1")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals("ETag", eTagOf(modified))
+                    .expectBody()
+                    .jsonPath("$.title").isEqualTo("my first post");
+
+            client.get()
+                    .uri("/posts/1")
+                    .ifNoneMatch(eTagOf(modified))
+                    .exchange()
+                    .expectStatus().isNotModified();
+
+            verifyNoInteractions(posts);
+        }
+
+        private static String eTagOf(LocalDateTime modified) {
+            return "\"1-" + modified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + "\"";
+        }
+
+        @Test
+        @DisplayName("should read only the selected fields when getting post by id with fields")
+        void shouldReadSelectedFieldsWhenGettingPostByIdWithFields() {
+            var fields = PostFields.of(List.of("title", "excerpt", "version", "lastModifiedDate"), 200);
+            given(posts.findById("1", fields)).willReturn(
+                    Mono.just(Post.builder().id("1").title("my first post").excerpt("content of").status(null).build()));
+
+            client.get()
+                    .uri("/posts/1?fields=title,excerpt")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.title").isEqualTo("my first post")
+                    .jsonPath("$.excerpt").isEqualTo("content of")
+                    .jsonPath("$.content").doesNotExist();
+
+            verify(posts, times(1)).findById("1", fields);
+            verifyNoMoreInteractions(posts);
+        }
+
         @Test
         @DisplayName("should return 404 when getting post by a none existing id")
         void shouldReturn404WhenGettingPostByNonExistedId() {
@@ -157,7 +561,7 @@ class PostControllerTest {
                     .expectStatus()
                     .isNotFound();
 
-            verify(posts, times(1)).findById(anyString());
+            verify(posts, times(1)).findById("1");
             verifyNoMoreInteractions(posts);
         }
     }
@@ -213,45 +617,142 @@ class PostControllerTest {
     class UpdatingPost {
 
         @Test
-        @DisplayName("should return 204 when updating post")
+        @DisplayName("should return 204 when updating any version of post with If-Match *")
         void shouldBeOkWhenUpdatingPost() {
-            Post post = Post.builder()
-                    .id("1")
-                    .title("my first post")
-                    .content("content of my first post")
-                    .createdDate(LocalDateTime.now())
-                    .build();
-
-            given(posts.findById("1")).willReturn(Mono.just(post));
-
-            post.setTitle("updated title");
-            post.setContent("updated content");
-
-            given(posts.save(post)).willReturn(
-                    Mono.just(
-                            Post.builder()
-                                    .id("1")
-                                    .title("updated title")
-                                    .content("updated content")
-                                    .createdDate(LocalDateTime.now())
-                                    .build()
-                    )
-            );
+            var changes = new PostUpdate("updated title", "updated content", null);
+            given(posts.update("1", null, changes)).willReturn(Mono.just(
+                    Post.builder().id("1").title("updated title").content("updated content").version(2L).build()));
 
             client.put()
                     .uri("/posts/1")
-                    .body(BodyInserters.fromValue(post))
+                    .ifMatch("*")
+                    .body(BodyInserters.fromValue(new UpdatePostCommand("updated title", "updated content")))
                     .exchange()
                     .expectStatus()
                     .isNoContent()
+                    .expectHeader().valueEquals("ETag", "\"1-v2\"")
                     .expectBody()
                     .isEmpty();
 
-            verify(posts, times(1)).findById(anyString());
-            verify(posts, times(1)).save(any(Post.class));
+            verify(posts, times(1)).update("1", null, changes);
             verifyNoMoreInteractions(posts);
         }
 
+        @Test
+        @DisplayName("should only update the version of If-Match")
+        void shouldUpdateVersionOfIfMatch() {
+            var changes = new PostUpdate("updated title", "updated content", null);
+            given(posts.update("1", 1L, changes)).willReturn(Mono.just(Post.builder().id("1").version(2L).build()));
+
+            client.put()
+                    .uri("/posts/1")
+                    .ifMatch("\"1-v1\"")
+                    .body(BodyInserters.fromValue(new UpdatePostCommand("updated title", "updated content")))
+                    .exchange()
+                    .expectStatus()
+                    .isNoContent();
+
+            verify(posts, times(1)).update("1", 1L, changes);
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 412 when the post has been modified since If-Match")
+        void shouldReturn412WhenPostModifiedSinceIfMatch() {
+            var changes = new PostUpdate("updated title", "updated content", null);
+            given(posts.update("1", 1L, changes)).willReturn(Mono.empty());
+
+            client.put()
+                    .uri("/posts/1")
+                    .ifMatch("\"1-v1\"")
+                    .body(BodyInserters.fromValue(new UpdatePostCommand("updated title", "updated content")))
+                    .exchange()
+                    .expectStatus()
+                    .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+            verify(posts, times(1)).update("1", 1L, changes);
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 412 when updating a none existing post with If-Match *")
+        void shouldReturn412WhenUpdatingNonExistedPost() {
+            var changes = new PostUpdate("updated title", "updated content", null);
+            given(posts.update("1", null, changes)).willReturn(Mono.empty());
+
+            client.put()
+                    .uri("/posts/1")
+                    .ifMatch("*")
+                    .body(BodyInserters.fromValue(new UpdatePostCommand("updated title", "updated content")))
+                    .exchange()
+                    .expectStatus()
+                    .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        }
+
+        @Test
+        @DisplayName("should return 428 when updating post without If-Match")
+        void shouldReturn428WhenUpdatingPostWithoutIfMatch() {
+            client.put()
+                    .uri("/posts/1")
+                    .body(BodyInserters.fromValue(new UpdatePostCommand("updated title", "updated content")))
+                    .exchange()
+                    .expectStatus()
+                    .isEqualTo(HttpStatus.PRECONDITION_REQUIRED);
+
+            verifyNoInteractions(posts);
+        }
+
+    }
+
+    @Nested
+    @DisplayName("/posts/:id PATCH")
+    class PatchingPost {
+
+        @Test
+        @DisplayName("should only change the given fields when patching post")
+        void shouldChangeGivenFieldsWhenPatchingPost() {
+            var changes = new PostUpdate(null, null, Post.Status.PUBLISHED);
+            given(posts.update("1", 2L, changes)).willReturn(Mono.just(Post.builder().id("1").version(3L).build()));
+
+            client.patch()
+                    .uri("/posts/1")
+                    .ifMatch("\"1-v2\"")
+                    .body(BodyInserters.fromValue(new PatchPostCommand(null, null, "PUBLISHED")))
+                    .exchange()
+                    .expectStatus()
+                    .isNoContent();
+
+            verify(posts, times(1)).update("1", 2L, changes);
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 400 when patching post with a blank title")
+        void shouldReturn400WhenPatchingPostWithBlankTitle() {
+            client.patch()
+                    .uri("/posts/1")
+                    .body(BodyInserters.fromValue(new PatchPostCommand(" ", null, null)))
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest();
+
+            verifyNoInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 400 when patching post without any field")
+        void shouldReturn400WhenPatchingPostWithoutAnyField() {
+            client.patch()
+                    .uri("/posts/1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{}")
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest();
+
+            verifyNoInteractions(posts);
+        }
+
     }
 
     @Nested
@@ -261,38 +762,19 @@ class PostControllerTest {
         @Test
         @DisplayName("should return 204 when updating the status of a post")
         void shouldBeOkWhenUpdatingPostStatus() {
-            Post post = Post.builder()
-                    .id("1")
-                    .title("my first post")
-                    .content("content of my first post")
-                    .createdDate(LocalDateTime.now())
-                    .build();
-
-            given(posts.findById("1")).willReturn(Mono.just(post));
-
-            post.setStatus(Post.Status.PUBLISHED);
-
-            given(posts.save(post))
-                    .willReturn(
-                            Mono.just(
-                                    Post.builder()
-                                            .id("1")
-                                            .title("updated title")
-                                            .content("updated content")
-                                            .createdDate(LocalDateTime.now())
-                                            .build()
-                            )
-                    );
+            var changes = new PostUpdate(null, null, Post.Status.PUBLISHED);
+            given(posts.update("1", 0L, changes)).willReturn(Mono.just(
+                    Post.builder().id("1").status(Post.Status.PUBLISHED).version(1L).build()));
 
             client.put()
                     .uri("/posts/1/status")
+                    .ifMatch("\"1-v0\"")
                     .body(BodyInserters.fromValue(new UpdateStatusRequest("PUBLISHED")))
                     .exchange()
                     .expectStatus()
                     .isNoContent();
 
-            verify(posts, times(1)).findById(anyString());
-            verify(posts, times(1)).save(any(Post.class));
+            verify(posts, times(1)).update("1", 0L, changes);
             verifyNoMoreInteractions(posts);
         }
     }
@@ -304,22 +786,26 @@ class PostControllerTest {
         @Test
         @DisplayName("should return 204 when deleting post")
         void shouldReturn204WhenDeletingPost() {
-            Post post = Post.builder()
-                    .id("1")
-                    .title("my first post")
-                    .content("content of my first post")
-                    .createdDate(LocalDateTime.now())
-                    .build();
-
-            given(posts.findById("1")).willReturn(Mono.just(post));
-            Mono<Void> mono = Mono.empty();
-            given(posts.delete(post)).willReturn(mono);
+            given(posts.removeById("1")).willReturn(Mono.just(1L));
+            given(commentPurge.purge("1")).willReturn(Mono.empty());
 
             client.delete().uri("/posts/1").exchange().expectStatus().isNoContent();
 
-            verify(posts, times(1)).findById(anyString());
-            verify(posts, times(1)).delete(any(Post.class));
+            verify(posts, times(1)).removeById("1");
+            verify(commentPurge, times(1)).purge("1");
+            verifyNoMoreInteractions(posts);
+        }
+
+        @Test
+        @DisplayName("should return 404 when deleting a none existing post")
+        void shouldReturn404WhenDeletingNonExistedPost() {
+            given(posts.removeById("1")).willReturn(Mono.just(0L));
+
+            client.delete().uri("/posts/1").exchange().expectStatus().isNotFound();
+
+            verify(posts, times(1)).removeById("1");
             verifyNoMoreInteractions(posts);
+            verifyNoInteractions(commentPurge);
         }
 
     }
@@ -1,7 +1,9 @@
 package com.example.demo;
 
 import com.example.demo.domain.Post;
+import com.example.demo.repository.PostFields;
 import com.example.demo.repository.PostRepository;
+import com.example.demo.repository.PostUpdate;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,9 +14,11 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
@@ -100,4 +104,142 @@ class PostRepositoryTest {
 
     }
 
+    @Test
+    void testGetAllPostsByKeyset() {
+        var now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        // posts created at the same time are ordered by id
+        List<Post> data = List.of(
+                keysetPost("k1", now),
+                keysetPost("k2", now),
+                keysetPost("k3", now.minusMinutes(1)),
+                keysetPost("k4", now.minusMinutes(2)),
+                keysetPost("k5", now.minusMinutes(2))
+        );
+        this.reactiveMongoTemplate.dropCollection(Post.class)
+                .thenMany(this.reactiveMongoTemplate.insertAll(data))
+                .then()
+                .block();
+
+        var firstPage = this.postRepository.findByKeyset("keyset", null, null, 2, PostFields.ALL)
+                .collectList().block();
+        assertThat(firstPage).extracting(Post::getId).containsExactly("k2", "k1");
+
+        var last = firstPage.get(1);
+        var secondPage = this.postRepository
+                .findByKeyset("keyset", last.getCreatedDate(), last.getId(), 2, PostFields.ALL)
+                .collectList().block();
+        assertThat(secondPage).extracting(Post::getId).containsExactly("k3", "k5");
+
+        last = secondPage.get(1);
+        this.postRepository.findByKeyset("keyset", last.getCreatedDate(), last.getId(), 2, PostFields.ALL)
+                .map(Post::getId)
+                .as(StepVerifier::create)
+                .expectNext("k4")
+                .verifyComplete();
+
+        this.reactiveMongoTemplate.dropCollection(Post.class).block();
+    }
+
+    @Test
+    void testSearchPostsByText() {
+        var resolver = new MongoPersistentEntityIndexResolver(this.reactiveMongoTemplate.getConverter().getMappingContext());
+        List<Post> data = List.of(
+                Post.builder().id("t1").title("Running in the rain").content("a post about running").build(),
+                Post.builder().id("t2").title("My first post").content("runs every morning").build(),
+                Post.builder().id("t3").title("Cooking").content("a post about cooking").build()
+        );
+        this.reactiveMongoTemplate.dropCollection(Post.class)
+                .thenMany(Flux.fromIterable(resolver.resolveIndexFor(Post.class)))
+                .concatMap(index -> this.reactiveMongoTemplate.indexOps(Post.class).ensureIndex(index))
+                .thenMany(this.reactiveMongoTemplate.insertAll(data))
+                .then()
+                .block();
+
+        // stemmed, "run" matches running and runs, a match in the title weighs more
+        this.postRepository.findByText("run", "english", 0, 10, PostFields.ALL)
+                .map(Post::getId)
+                .as(StepVerifier::create)
+                .expectNext("t1", "t2")
+                .verifyComplete();
+
+        this.postRepository.countByText("run", "english")
+                .as(StepVerifier::create)
+                .expectNext(2L)
+                .verifyComplete();
+
+        this.reactiveMongoTemplate.dropCollection(Post.class).block();
+    }
+
+    @Test
+    void testFindPostsWithSummaryFields() {
+        var content = "x".repeat(300);
+        this.reactiveMongoTemplate.dropCollection(Post.class)
+                .then(this.reactiveMongoTemplate.insert(Post.builder().id("s1").title("summary").content(content)
+                        .createdDate(LocalDateTime.now()).build()))
+                .then()
+                .block();
+
+        this.postRepository.findByOffset("summary", 0, 10, PostFields.summary(200))
+                .as(StepVerifier::create)
+                .consumeNextWith(post -> {
+                    assertThat(post.getTitle()).isEqualTo("summary");
+                    assertThat(post.getContent()).isNull();
+                    assertThat(post.getExcerpt()).isEqualTo(content.substring(0, 200));
+                })
+                .verifyComplete();
+
+        this.postRepository.findById("s1", PostFields.of(List.of("title"), 200))
+                .as(StepVerifier::create)
+                .consumeNextWith(post -> {
+                    assertThat(post.getId()).isEqualTo("s1");
+                    assertThat(post.getTitle()).isEqualTo("summary");
+                    assertThat(post.getCreatedDate()).isNull();
+                    assertThat(post.getExcerpt()).isNull();
+                })
+                .verifyComplete();
+
+        this.reactiveMongoTemplate.dropCollection(Post.class).block();
+    }
+
+    @Test
+    void testUpdateOnlyTheExpectedVersion() {
+        this.reactiveMongoTemplate.dropCollection(Post.class)
+                .then(this.postRepository.save(Post.builder().title("versioned").content("content").build()))
+                .block();
+        var saved = this.postRepository.findAll().blockFirst();
+        assertThat(saved.getVersion()).isEqualTo(0L);
+
+        this.postRepository.update(saved.getId(), 0L, new PostUpdate("updated", null, null))
+                .as(StepVerifier::create)
+                .consumeNextWith(post -> {
+                    assertThat(post.getTitle()).isEqualTo("updated");
+                    assertThat(post.getContent()).isEqualTo("content");
+                    assertThat(post.getVersion()).isEqualTo(1L);
+                    assertThat(post.getLastModifiedDate()).isNotNull();
+                })
+                .verifyComplete();
+
+        // the version has moved on, a second update from the same version is not applied
+        this.postRepository.update(saved.getId(), 0L, new PostUpdate("lost", null, null))
+                .as(StepVerifier::create)
+                .verifyComplete();
+
+        this.postRepository.update(saved.getId(), null, new PostUpdate(null, null, Post.Status.PUBLISHED))
+                .map(Post::getStatus)
+                .as(StepVerifier::create)
+                .expectNext(Post.Status.PUBLISHED)
+                .verifyComplete();
+
+        this.reactiveMongoTemplate.dropCollection(Post.class).block();
+    }
+
+    private static Post keysetPost(String id, LocalDateTime createdDate) {
+        return Post.builder()
+                .id(id)
+                .title("my keyset post " + id)
+                .content("content of my keyset post " + id)
+                .createdDate(createdDate)
+                .build();
+    }
+
 }
@@ -0,0 +1,94 @@
+package com.example.demo;
+
+import com.example.demo.domain.Post;
+import com.example.demo.repository.PostTitle;
+import com.example.demo.repository.PostTitleIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostTitleIndexTest {
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+
+    private PostTitleIndex index;
+
+    @BeforeEach
+    void setup() {
+        this.index = new PostTitleIndex(this.mongoTemplate, this.meterRegistry);
+        this.index.replaceAll(List.of(
+                new PostTitle("1", "My first post"),
+                new PostTitle("2", "my second post"),
+                new PostTitle("3", "Another post"),
+                new PostTitle("4", "Myth busting")
+        ));
+    }
+
+    @Test
+    void testSuggestIgnoresCase() {
+        assertThat(this.index.suggest("MY ", 10)).extracting(PostTitle::id).containsExactly("1", "2");
+        assertThat(this.index.suggest("my", 10)).extracting(PostTitle::id).containsExactly("1", "2", "4");
+        assertThat(this.index.suggest("my", 2)).extracting(PostTitle::id).containsExactly("1", "2");
+        assertThat(this.index.suggest("none", 10)).isEmpty();
+        assertThat(this.index.suggest("", 10)).hasSize(4);
+    }
+
+    @Test
+    void testPutAndRemove() {
+        this.index.put(new PostTitle("5", "My new post"));
+        // an updated title moves the post
+        this.index.put(new PostTitle("1", "Not mine any more"));
+        this.index.remove("2");
+
+        assertThat(this.index.suggest("my", 10)).extracting(PostTitle::title)
+                .containsExactly("My new post", "Myth busting");
+        assertThat(this.index.suggest("not", 10)).extracting(PostTitle::id).containsExactly("1");
+    }
+
+    @Test
+    void testPutKeepsTheOrder() {
+        // the same title, then a title moving the post to the other end
+        this.index.put(new PostTitle("1", "My first post"));
+        this.index.put(new PostTitle("3", "Zen of posts"));
+        this.index.put(new PostTitle("2", null));
+        this.index.remove("none");
+
+        assertThat(this.index.suggest("", 10)).extracting(PostTitle::id).containsExactly("1", "4", "3");
+    }
+
+    @Test
+    void testChangesDuringRebuildAreKept() {
+        Sinks.Many<Post> posts = Sinks.many().replay().all();
+        when(this.mongoTemplate.find(any(Query.class), eq(Post.class))).thenReturn(posts.asFlux());
+
+        this.index.rebuild();
+        // applied after the rebuild read the posts, before it replaces the index
+        posts.tryEmitNext(Post.builder().id("1").title("My first post").build());
+        posts.tryEmitNext(Post.builder().id("2").title("my second post").build());
+        this.index.put(new PostTitle("5", "My new post"));
+        this.index.remove("2");
+        posts.tryEmitComplete();
+
+        assertThat(this.index.suggest("my", 10)).extracting(PostTitle::id).containsExactly("1", "5");
+    }
+
+    @Test
+    void testMetrics() {
+        assertThat(this.meterRegistry.get("posts.suggest.index.size").gauge().value()).isEqualTo(4);
+        assertThat(this.meterRegistry.get("posts.suggest.index.memory").gauge().value()).isPositive();
+    }
+
+}
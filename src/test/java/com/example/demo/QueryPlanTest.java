@@ -0,0 +1,289 @@
+package com.example.demo;
+
+import com.example.demo.domain.Comment;
+import com.example.demo.domain.Post;
+import com.example.demo.domain.PostId;
+import com.example.demo.domain.User;
+import com.example.demo.repository.CommentRepository;
+import com.example.demo.repository.PostFields;
+import com.example.demo.repository.PostRepository;
+import com.example.demo.repository.PostRepositoryCustom;
+import com.example.demo.repository.PostUpdate;
+import com.example.demo.repository.RevokedTokenRepository;
+import com.example.demo.repository.UserRepository;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.DynamicTest.dynamicTest;
+
+/**
+ * Runs every query method of the repositories against the indexes created by {@link IndexInitializer}, and fails
+ * if the plan of any command it sends falls back to a collection scan, or to a scan of a whole index.
+ * <p>
+ * A new query method fails {@link #testEveryQueryMethodIsGuarded()} until it is added to {@link #queries()}.
+ */
+@DataMongoTest
+@Testcontainers
+@Slf4j
+class QueryPlanTest {
+
+    // the commands whose plans are checked, the others do not query a collection
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "aggregate", "count", "distinct", "findAndModify",
+            "delete");
+
+    /*
+     * The queries allowed to scan the collection, each with the reason:
+     * - PostRepository.countByTitleContains: an unanchored regex can not use an index, the counts are cached by
+     *   PostCounts, and the text search mode counts with the text index instead.
+     */
+    private static final Set<String> COLLSCAN_ALLOWED = Set.of("PostRepository.countByTitleContains");
+
+    /*
+     * The queries allowed to walk a whole index, reading every entry as a collection scan would, each with the
+     * reason:
+     * - PostRepository.findByTitleContains, PostRepositoryCustom.findByOffset: an unanchored regex can not bound
+     *   the scan, the createdDate index only gives the sort, and the limit stops the scan after a page of matches.
+     * - PostRepositoryCustom.findByKeyset: the same regex, and the first page has no cursor to bound the scan, it
+     *   stops at the limit.
+     * - PostRepositoryCustom.findAllAfter: the export reads every post, in the order of the _id index.
+     */
+    private static final Set<String> FULL_INDEX_SCAN_ALLOWED = Set.of(
+            "PostRepository.findByTitleContains", "PostRepositoryCustom.findByOffset",
+            "PostRepositoryCustom.findByKeyset", "PostRepositoryCustom.findAllAfter"
+    );
+
+    // the bounds of an index field which matches any value, in either direction
+    private static final Set<String> FULL_RANGES = Set.of("[MinKey, MaxKey]", "[MaxKey, MinKey]");
+
+    private static final List<Class<?>> REPOSITORIES = List.of(
+            PostRepository.class, PostRepositoryCustom.class, CommentRepository.class, UserRepository.class,
+            RevokedTokenRepository.class
+    );
+
+    @Container
+    @ServiceConnection
+    private static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6");
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private CapturedCommands capturedCommands;
+
+    @Autowired
+    private PostRepository posts;
+
+    @Autowired
+    private CommentRepository comments;
+
+    @Autowired
+    private UserRepository users;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokens;
+
+    @BeforeEach
+    void setup() {
+        // explaining against a missing collection would report no plan at all
+        Flux.fromIterable(IndexInitializer.INDEXED_DOCUMENTS)
+                .concatMap(this.mongoTemplate::dropCollection)
+                .thenMany(new IndexInitializer(this.mongoTemplate).ensureIndexes())
+                .then(this.posts.save(Post.builder().title("my post").content("content of my post")
+                        .createdDate(LocalDateTime.now()).build()))
+                .then(this.comments.save(Comment.builder().content("my comment").post(new PostId("post-id")).build()))
+                .then(this.users.save(User.builder().username("user").password("password").build()))
+                .block();
+    }
+
+    private Map<String, Supplier<Publisher<?>>> queries() {
+        var now = LocalDateTime.now();
+        var queries = new LinkedHashMap<String, Supplier<Publisher<?>>>();
+        queries.put("PostRepository.findByTitleContains", () -> this.posts.findByTitleContains("post",
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdDate"))));
+        queries.put("PostRepository.countByTitleContains", () -> this.posts.countByTitleContains("post"));
+        queries.put("PostRepositoryCustom.findByKeyset", () -> Flux.concat(
+                this.posts.findByKeyset("", null, null, 10, PostFields.ALL),
+                this.posts.findByKeyset("post", now, "id", 10, PostFields.summary(200))));
+        queries.put("PostRepositoryCustom.findByOffset",
+                () -> this.posts.findByOffset("post", 10, 10, PostFields.summary(200)));
+        queries.put("PostRepositoryCustom.findByText",
+                () -> this.posts.findByText("post", "english", 0, 10, PostFields.summary(200)));
+        queries.put("PostRepositoryCustom.findById", () -> this.posts.findById("id", PostFields.summary(200)));
+        queries.put("PostRepositoryCustom.update",
+                () -> this.posts.update("id", 1L, new PostUpdate("title", null, Post.Status.PUBLISHED)));
+        queries.put("PostRepositoryCustom.findAllAfter", () -> Flux.concat(
+                this.posts.findAllAfter(null, 100),
+                this.posts.findAllAfter(new ObjectId(), 100)));
+        // deletes nothing, the other queries are explained against the same documents
+        queries.put("PostRepositoryCustom.removeById", () -> this.posts.removeById("id"));
+        queries.put("PostRepositoryCustom.countByText", () -> this.posts.countByText("post", "english"));
+        queries.put("CommentRepository.findByPost", () -> this.comments.findByPost(new PostId("post-id")));
+        queries.put("CommentRepository.countByPost", () -> this.comments.countByPost(new PostId("post-id")));
+        queries.put("CommentRepository.deleteByPost", () -> this.comments.deleteByPost(new PostId("other-post-id")));
+        queries.put("UserRepository.findByUsername", () -> this.users.findByUsername("user"));
+        queries.put("RevokedTokenRepository.findByExpiresAtAfter",
+                () -> this.revokedTokens.findByExpiresAtAfter(Instant.now()));
+        queries.put("RevokedTokenRepository.findByRevokedAtAfter",
+                () -> this.revokedTokens.findByRevokedAtAfter(Instant.now()));
+        return queries;
+    }
+
+    @Test
+    void testEveryQueryMethodIsGuarded() {
+        var declared = REPOSITORIES.stream()
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods())
+                        .filter(method -> !method.isDefault() && !method.isSynthetic())
+                        .map(method -> nameOf(repository, method)))
+                .collect(Collectors.toSet());
+
+        assertThat(queries().keySet()).containsExactlyInAnyOrderElementsOf(declared);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> testNoCollectionScan() {
+        return queries().entrySet().stream()
+                .map(query -> dynamicTest(query.getKey(), () -> {
+                    this.capturedCommands.clear();
+                    Flux.from(query.getValue().get()).then().block();
+
+                    var commands = this.capturedCommands.drain();
+                    assertThat(commands).as("commands sent by " + query.getKey()).isNotEmpty();
+                    for (BsonDocument command : commands) {
+                        var explained = explain(command);
+                        var plan = explained.toJson();
+                        log.debug("plan of {}: {}", query.getKey(), plan);
+                        if (COLLSCAN_ALLOWED.contains(query.getKey())) {
+                            continue;
+                        }
+                        assertThat(plan).as("plan of " + query.getKey()).doesNotContain("\"COLLSCAN\"");
+                        if (!FULL_INDEX_SCAN_ALLOWED.contains(query.getKey())) {
+                            assertThat(indexScans(explained))
+                                    .as("index scans of " + query.getKey())
+                                    .noneMatch(QueryPlanTest::isUnbounded);
+                        }
+                    }
+                }));
+    }
+
+    private Document explain(BsonDocument command) {
+        var explained = new BsonDocument();
+        // drops the session and the other fields the driver adds to every command
+        command.forEach((key, value) -> {
+            if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber")) {
+                explained.put(key, value);
+            }
+        });
+        return this.mongoTemplate.getMongoDatabase()
+                .flatMap(database -> Mono.from(database.runCommand(
+                        new Document("explain", explained).append("verbosity", "queryPlanner"))))
+                .block();
+    }
+
+    // the index scans of the winning plan, wherever the command nests it, the rejected plans are left out
+    private static List<Document> indexScans(Object node) {
+        var scans = new ArrayList<Document>();
+        if (node instanceof Document document) {
+            if ("IXSCAN".equals(document.get("stage"))) {
+                scans.add(document);
+            }
+            document.forEach((key, value) -> {
+                if (!key.equals("rejectedPlans")) {
+                    scans.addAll(indexScans(value));
+                }
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(element -> scans.addAll(indexScans(element)));
+        }
+        return scans;
+    }
+
+    // every field of the index is scanned over its whole range, e.g. a compound index is never unbounded while its
+    // first field is bounded
+    private static boolean isUnbounded(Document indexScan) {
+        var bounds = indexScan.get("indexBounds", Document.class);
+        return bounds != null && !bounds.isEmpty() && bounds.values().stream()
+                .allMatch(field -> field instanceof List<?> intervals
+                        && intervals.size() == 1 && FULL_RANGES.contains(intervals.get(0)));
+    }
+
+    private static String nameOf(Class<?> repository, Method method) {
+        return repository.getSimpleName() + "." + method.getName();
+    }
+
+    static class CapturedCommands implements CommandListener {
+
+        private final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            if (QUERY_COMMANDS.contains(event.getCommandName())) {
+                this.commands.add(event.getCommand().clone());
+            }
+        }
+
+        void clear() {
+            this.commands.clear();
+        }
+
+        List<BsonDocument> drain() {
+            var drained = List.copyOf(this.commands);
+            this.commands.clear();
+            return drained;
+        }
+
+    }
+
+    @TestConfiguration
+    static class CommandCaptureConfig {
+
+        @Bean
+        CapturedCommands capturedCommands() {
+            return new CapturedCommands();
+        }
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandCapture(CapturedCommands capturedCommands) {
+            return settings -> settings.addCommandListener(capturedCommands);
+        }
+
+    }
+
+}
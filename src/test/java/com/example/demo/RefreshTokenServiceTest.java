@@ -0,0 +1,79 @@
+package com.example.demo;
+
+import com.example.demo.domain.RefreshToken;
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserCache;
+import com.example.demo.security.InvalidRefreshTokenException;
+import com.example.demo.security.RefreshTokenProperties;
+import com.example.demo.security.RefreshTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataMongoTest
+@Testcontainers
+class RefreshTokenServiceTest {
+
+    @Container
+    @ServiceConnection
+    private static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:6");
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private UserCache users = mock(UserCache.class);
+
+    private RefreshTokenService refreshTokens;
+
+    @BeforeEach
+    void setup() {
+        this.mongoTemplate.dropCollection(RefreshToken.class).block();
+        when(this.users.findByUsername(anyString())).thenAnswer(invocation -> Mono.just(User.builder()
+                .username(invocation.getArgument(0))
+                .roles(List.of("ROLE_USER"))
+                .build()));
+        this.refreshTokens = new RefreshTokenService(this.mongoTemplate, this.users, new RefreshTokenProperties());
+    }
+
+    @Test
+    void testRefreshAfterLogoutIsRejected() {
+        var token = this.refreshTokens.issue("user").block();
+
+        StepVerifier.create(this.refreshTokens.revoke(token)).verifyComplete();
+
+        StepVerifier.create(this.refreshTokens.rotate(token))
+                .verifyError(InvalidRefreshTokenException.class);
+    }
+
+    @Test
+    void testRefreshAfterLogoutOfAllSessionsIsRejected() {
+        var first = this.refreshTokens.issue("user").block();
+        var second = this.refreshTokens.issue("user").block();
+        var other = this.refreshTokens.issue("other").block();
+
+        StepVerifier.create(this.refreshTokens.revokeAll("user")).verifyComplete();
+
+        StepVerifier.create(this.refreshTokens.rotate(first))
+                .verifyError(InvalidRefreshTokenException.class);
+        StepVerifier.create(this.refreshTokens.rotate(second))
+                .verifyError(InvalidRefreshTokenException.class);
+        StepVerifier.create(this.refreshTokens.rotate(other))
+                .expectNextMatches(rotation -> rotation.authentication().getName().equals("other"))
+                .verifyComplete();
+    }
+
+}
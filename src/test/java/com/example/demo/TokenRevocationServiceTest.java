@@ -0,0 +1,150 @@
+package com.example.demo;
+
+import com.example.demo.domain.RevokedToken;
+import com.example.demo.repository.RevokedTokenRepository;
+import com.example.demo.security.jwt.JwtProperties;
+import com.example.demo.security.jwt.JwtTokenProvider;
+import com.example.demo.security.jwt.JwtVerificationResult;
+import com.example.demo.security.jwt.TokenDigest;
+import com.example.demo.security.jwt.TokenRevocationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+    private JwtTokenProvider tokenProvider = mock(JwtTokenProvider.class);
+
+    private RevokedTokenRepository revokedTokens = mock(RevokedTokenRepository.class);
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TokenRevocationService revocations;
+
+    @BeforeEach
+    void setup() {
+        when(this.revokedTokens.existsById(anyString())).thenReturn(Mono.just(false));
+        when(this.revokedTokens.findByRevokedAtAfter(any(Instant.class))).thenReturn(Flux.empty());
+        this.revocations = new TokenRevocationService(this.tokenProvider, this.revokedTokens, new JwtProperties(),
+                this.meterRegistry);
+    }
+
+    @Test
+    void testEveryCheckGoesToTheStoreBeforeTheFirstRebuild() {
+        var digest = TokenDigest.of("atoken");
+
+        StepVerifier.create(this.revocations.isRevoked(digest)).expectNext(false).verifyComplete();
+
+        verify(this.revokedTokens, times(1)).existsById(digest.toHex());
+        assertThat(this.meterRegistry.get("jwt.revocation.store.lookups").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testNotRevokedTokenCostsNoIo() {
+        when(this.revokedTokens.findByExpiresAtAfter(any(Instant.class))).thenReturn(Flux.empty());
+        this.revocations.rebuild();
+
+        StepVerifier.create(this.revocations.isRevoked(TokenDigest.of("atoken"))).expectNext(false).verifyComplete();
+
+        verify(this.revokedTokens, never()).existsById(anyString());
+        assertThat(this.meterRegistry.get("jwt.revocation.store.lookups").counter().count()).isZero();
+    }
+
+    @Test
+    void testRebuildLoadsTheRevokedTokens() {
+        var revoked = TokenDigest.of("arevokedtoken");
+        when(this.revokedTokens.findByExpiresAtAfter(any(Instant.class)))
+                .thenReturn(Flux.just(revokedToken(revoked, Instant.now())));
+        when(this.revokedTokens.existsById(revoked.toHex())).thenReturn(Mono.just(true));
+
+        this.revocations.rebuild();
+
+        StepVerifier.create(this.revocations.isRevoked(revoked)).expectNext(true).verifyComplete();
+        StepVerifier.create(this.revocations.isRevoked(TokenDigest.of("atoken"))).expectNext(false).verifyComplete();
+        verify(this.revokedTokens, times(1)).existsById(anyString());
+        verify(this.revokedTokens, times(1)).existsById(revoked.toHex());
+    }
+
+    @Test
+    void testSyncAddsTheTokensRevokedByOtherInstances() {
+        when(this.revokedTokens.findByExpiresAtAfter(any(Instant.class))).thenReturn(Flux.empty());
+        this.revocations.rebuild();
+
+        var revoked = TokenDigest.of("arevokedtoken");
+        when(this.revokedTokens.findByRevokedAtAfter(any(Instant.class)))
+                .thenReturn(Flux.just(revokedToken(revoked, Instant.now())));
+        when(this.revokedTokens.existsById(revoked.toHex())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(this.revocations.isRevoked(revoked)).expectNext(false).verifyComplete();
+
+        this.revocations.sync();
+
+        StepVerifier.create(this.revocations.isRevoked(revoked)).expectNext(true).verifyComplete();
+        // once after the rebuild, and once now
+        verify(this.revokedTokens, times(2)).findByRevokedAtAfter(any(Instant.class));
+        verify(this.revokedTokens, times(1)).existsById(revoked.toHex());
+    }
+
+    @Test
+    void testRebuildAddsTheTokensRevokedWhileReading() {
+        var revokedBefore = TokenDigest.of("arevokedtoken");
+        var revokedWhileReading = TokenDigest.of("ajustrevokedtoken");
+        when(this.revokedTokens.findByExpiresAtAfter(any(Instant.class)))
+                .thenReturn(Flux.just(revokedToken(revokedBefore, Instant.now())));
+        when(this.revokedTokens.findByRevokedAtAfter(any(Instant.class)))
+                .thenReturn(Flux.just(revokedToken(revokedWhileReading, Instant.now())));
+        when(this.revokedTokens.existsById(revokedWhileReading.toHex())).thenReturn(Mono.just(true));
+
+        this.revocations.rebuild();
+
+        StepVerifier.create(this.revocations.isRevoked(revokedWhileReading)).expectNext(true).verifyComplete();
+        verify(this.revokedTokens, times(1)).findByRevokedAtAfter(any(Instant.class));
+        verify(this.revokedTokens, times(1)).existsById(revokedWhileReading.toHex());
+    }
+
+    @Test
+    void testRevokeAddsTheTokenToTheFilter() {
+        when(this.revokedTokens.findByExpiresAtAfter(any(Instant.class))).thenReturn(Flux.empty());
+        this.revocations.rebuild();
+
+        var authentication = new UsernamePasswordAuthenticationToken("test", "atoken",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+        when(this.tokenProvider.verify("atoken"))
+                .thenReturn(JwtVerificationResult.valid(authentication, Instant.now().plusSeconds(60)));
+        when(this.revokedTokens.save(any(RevokedToken.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        var digest = TokenDigest.of("atoken");
+        when(this.revokedTokens.existsById(digest.toHex())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(this.revocations.revoke("atoken")).verifyComplete();
+
+        StepVerifier.create(this.revocations.isRevoked(digest)).expectNext(true).verifyComplete();
+        verify(this.revokedTokens, times(1)).save(any(RevokedToken.class));
+    }
+
+    private static RevokedToken revokedToken(TokenDigest digest, Instant revokedAt) {
+        return RevokedToken.builder()
+                .id(digest.toHex())
+                .username("test")
+                .revokedAt(revokedAt)
+                .expiresAt(revokedAt.plusSeconds(60))
+                .build();
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.example.demo;
+
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserCache;
+import com.example.demo.repository.UserCacheProperties;
+import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCacheTest {
+
+    private UserRepository users = mock(UserRepository.class);
+
+    private UserCache userCache;
+
+    @BeforeEach
+    void setup() {
+        this.userCache = new UserCache(this.users, new UserCacheProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testConcurrentMissesQueryOnce() {
+        var user = User.builder().id("1").username("test").roles(List.of("ROLE_USER")).build();
+        Sinks.One<User> result = Sinks.one();
+        when(this.users.findByUsername("test")).thenReturn(result.asMono());
+
+        var lookups = Flux.merge(this.userCache.findByUsername("test"), this.userCache.findByUsername("test"));
+        StepVerifier.create(lookups)
+                .then(() -> result.tryEmitValue(user))
+                .expectNext(user, user)
+                .verifyComplete();
+
+        verify(this.users, times(1)).findByUsername("test");
+    }
+
+    @Test
+    void testHitAndInvalidate() {
+        var user = User.builder().id("1").username("test").build();
+        when(this.users.findByUsername("test")).thenReturn(Mono.just(user));
+
+        StepVerifier.create(this.userCache.findByUsername("test")).expectNext(user).verifyComplete();
+        StepVerifier.create(this.userCache.findByUsername("test")).expectNext(user).verifyComplete();
+        verify(this.users, times(1)).findByUsername("test");
+
+        this.userCache.invalidateById("1");
+
+        StepVerifier.create(this.userCache.findByUsername("test")).expectNext(user).verifyComplete();
+        verify(this.users, times(2)).findByUsername("test");
+    }
+
+    @Test
+    void testMissingUserIsNotCached() {
+        when(this.users.findByUsername("noone")).thenReturn(Mono.empty());
+
+        StepVerifier.create(this.userCache.findByUsername("noone")).verifyComplete();
+        StepVerifier.create(this.userCache.findByUsername("noone")).verifyComplete();
+
+        verify(this.users, times(2)).findByUsername("noone");
+    }
+
+}
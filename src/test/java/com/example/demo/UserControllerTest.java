@@ -1,7 +1,7 @@
 package com.example.demo;
 
 import com.example.demo.domain.User;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.repository.UserCache;
 import com.example.demo.web.UserController;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
@@ -32,7 +32,7 @@ import static org.mockito.Mockito.when;
 class UserControllerTest {
 
     @MockBean
-    private UserRepository users;
+    private UserCache users;
 
     @Autowired
     private WebTestClient client;